@@ -0,0 +1,185 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+// Workloads of the JMH benchmarks, built on the game classes.
+// JMH refuses benchmark classes in the default package, and classes in a named package can't use the game classes
+// of the default package. So the benchmarks in tictactoe.bench get their workloads from here as plain
+// java.util.function objects, see Workload. One call of a workload is one operation of the benchmark.
+public final class Workloads {
+
+    private static final int POSITIONS = 1024;      // Positions cycled through, so no single one gets too hot
+    private static final long NO_DEADLINE = TimeUnit.HOURS.toNanos(1);  // Time budget of depth limited searches
+
+    // The game and the computer log every move at DEBUG, which is off unless turned on with a system property.
+    // Turn them off for good, so a benchmark measures the game rather than the logging and its output stays clean
+    static {
+        Logger.setLevel("game", LogLevel.OFF);
+        Logger.setLevel("computer", LogLevel.OFF);
+    }
+
+    private Workloads() {
+    }
+
+    // TicTacToe.checkWinning for the last mark of a random position, with the given fraction of the board filled
+    public static IntSupplier checkWinning(int size, double fill, long seed) {
+        Positions positions = new Positions(size, fill, seed);
+        return new IntSupplier() {
+            private int next;
+
+            public int getAsInt() {
+                int i = next++ & (POSITIONS - 1);
+                return positions.games[i].checkWinning(positions.players[i], positions.rows[i], positions.cols[i])
+                        ? 1 : 0;
+            }
+        };
+    }
+
+    // Computer.play of the BLOCKER strategy, answering the last X of a random position
+    public static IntSupplier computerPlay(int size, double fill, long seed) {
+        Positions positions = new Positions(size, fill, seed);
+        return new IntSupplier() {
+            private int next;
+
+            public int getAsInt() {
+                int i = next++ & (POSITIONS - 1);
+                return positions.games[i].getBot().play(positions.rows[i], positions.cols[i]);
+            }
+        };
+    }
+
+    // AlphaBetaSearch.bestMove of O in a random position, to the given depth on the given number of threads. The
+    // depth rather than a time budget bounds the work, so a faster search shows up as a shorter operation
+    public static IntSupplier searchMove(int size, double fill, long seed, int depth, int parallelism) {
+        Positions positions = new Positions(size, fill, seed);
+        AlphaBetaSearch search = new AlphaBetaSearch(size, 16);
+        search.setParallelism(parallelism);
+        return new IntSupplier() {
+            private int next;
+
+            public int getAsInt() {
+                BitBoard board = (BitBoard) positions.games[next++ & (POSITIONS - 1)].getState();
+                return search.bestMove(board.getBits(Board.X), board.getBits(Board.O), Board.O, NO_DEADLINE, depth);
+            }
+        };
+    }
+
+    // Computer.possibleMoves around the last X of a random position
+    public static LongSupplier possibleMoves(int size, double fill, long seed) {
+        Positions positions = new Positions(size, fill, seed);
+        return new LongSupplier() {
+            private int next;
+
+            public long getAsLong() {
+                int i = next++ & (POSITIONS - 1);
+                BitBoard board = (BitBoard) positions.games[i].getState();
+                return positions.games[i].getBot().possibleMoves(positions.rows[i], positions.cols[i],
+                        board.getBits(Board.X), board.getBits(Board.O));
+            }
+        };
+    }
+
+    // One TicTacToe.mark of X on a random blank spot, including the reply of the computer. A new game is started
+    // whenever the last one ended, the exceptions thrown at the end of a game are part of the measured cost
+    public static IntSupplier mark(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return new IntSupplier() {
+            private TicTacToe game = newGame(size, random);
+
+            public int getAsInt() {
+                int cell = randomBlank(game, random);
+                try {
+                    if (!game.mark(TicTacToe.EX, cell / size, cell % size))
+                        return cell;
+                }
+                catch (BotWonException | DrawException e) {
+                    // Game over, same as X winning
+                }
+                game = newGame(size, random);
+                return -1;
+            }
+        };
+    }
+
+    // A whole game of a random X against the BLOCKER computer, through the headless play() API.
+    // Returns the ordinal of the result
+    public static IntSupplier selfPlay(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> {
+            TicTacToe game = newGame(size, random);
+            MoveResult result = MoveResult.ONGOING;
+            while (!result.isFinished()) {
+                int cell = randomBlank(game, random);
+                result = game.play(cell / size, cell % size);
+            }
+            return result.ordinal();
+        };
+    }
+
+    // The first move of a new game of the given size, X in the center and the computer's reply, which builds (or
+    // loads) the tables of that size. Only the first call of a JVM measures that, later calls reuse the tables
+    public static IntSupplier firstMove(int size) {
+        return () -> {
+            TicTacToe game = new TicTacToe(size);
+            return game.play(size / 2, size / 2).ordinal();
+        };
+    }
+
+    // Helper functions:
+
+    // A new game whose computer plays from the given random numbers
+    private static TicTacToe newGame(int size, SplittableRandom random) {
+        TicTacToe game = new TicTacToe(size);
+        game.getBot().setSeed(random.nextLong());
+        return game;
+    }
+
+    // A random blank cell of a game that is not over yet
+    private static int randomBlank(TicTacToe game, SplittableRandom random) {
+        Board board = game.getState();
+        int cells = game.getSize() * game.getSize();
+        int cell;
+        do {
+            cell = random.nextInt(cells);
+        } while (board.get(cell) != Board.EMPTY);
+        return cell;
+    }
+
+    // POSITIONS random positions with the given fraction of the cells marked, X and O taking turns starting with X.
+    // The marks are set on the boards (and the threat index, if any) directly, so the positions may contain wins that a
+    // real game would have stopped at. An odd number of cells is marked, the last one being an X, which is what
+    // the computer answers
+    private static final class Positions {
+
+        final TicTacToe[] games = new TicTacToe[POSITIONS];
+        final int[] players = new int[POSITIONS];   // Player of the last mark
+        final int[] rows = new int[POSITIONS];      // Coordinate of the last mark
+        final int[] cols = new int[POSITIONS];
+
+        Positions(int size, double fill, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int cells = size * size;
+            int count = Math.max(3, (int) Math.round(cells * fill)) | 1;
+            if (count >= cells)             // Leave a blank spot for the computer to answer on
+                count -= 2;
+            for (int i = 0; i < POSITIONS; i++) {
+                TicTacToe game = newGame(size, random);
+                Board board = game.getState();
+                int player = Board.X;
+                int cell = -1;
+                for (int k = 0; k < count; k++) {
+                    cell = randomBlank(game, random);
+                    player = k % 2 == 0 ? Board.X : Board.O;
+                    board.set(cell, player);
+                    if (game.getThreats() != null)
+                        game.getThreats().mark(player, cell);
+                }
+                games[i] = game;
+                players[i] = player;
+                rows[i] = cell / size;
+                cols[i] = cell % size;
+            }
+        }
+    }
+}
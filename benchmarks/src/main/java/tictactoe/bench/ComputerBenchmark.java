@@ -0,0 +1,81 @@
+package tictactoe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+// The BLOCKER computer answering the last X of random positions: the whole Computer.play, and only the candidate
+// moves of Computer.possibleMoves. search is the SEARCH strategy's AlphaBetaSearch on the same positions, to a
+// fixed depth on parallelism threads, for the speedup of its parallel root split; compare its parallelism 1 and
+// N results on a machine with at least N cores.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputerBenchmark {
+
+    @Param({"3", "4", "5", "6", "7"})
+    public int size;
+
+    @Param({"SPARSE", "MID_GAME", "NEAR_FULL"})
+    public String fill;
+
+    private IntSupplier play;
+    private LongSupplier possible_moves;
+
+    @Setup
+    public void setup() {
+        play = Workload.of(IntSupplier.class, "computerPlay", size, Workload.fraction(fill), 42L);
+        possible_moves = Workload.of(LongSupplier.class, "possibleMoves", size, Workload.fraction(fill), 42L);
+    }
+
+    @Benchmark
+    public int play() {
+        return play.getAsInt();
+    }
+
+    @Benchmark
+    public long possibleMoves() {
+        return possible_moves.getAsLong();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int search(Search search) {
+        return search.move.getAsInt();
+    }
+
+    // Parameters of the search benchmark only, so the other benchmarks don't run once per parallelism
+    @State(Scope.Thread)
+    public static class Search {
+
+        @Param({"1", "2", "4"})
+        public int parallelism;
+
+        @Param({"7"})
+        public int depth;
+
+        private IntSupplier move;
+
+        @Setup
+        public void setup(ComputerBenchmark benchmark) {
+            move = Workload.of(IntSupplier.class, "searchMove", benchmark.size, Workload.fraction(benchmark.fill), 42L,
+                    depth, parallelism);
+        }
+    }
+}
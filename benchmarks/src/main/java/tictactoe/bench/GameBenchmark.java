@@ -0,0 +1,49 @@
+package tictactoe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Whole moves and games: TicTacToe.mark of a random X including the computer's reply (marks per second), and
+// complete games of a random X against the BLOCKER computer (games per second).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    @Param({"3", "4", "5", "6", "7", "19", "100"})
+    public int size;
+
+    private IntSupplier mark;
+    private IntSupplier self_play;
+
+    @Setup
+    public void setup() {
+        mark = Workload.of(IntSupplier.class, "mark", size, 42L);
+        self_play = Workload.of(IntSupplier.class, "selfPlay", size, 42L);
+    }
+
+    @Benchmark
+    public int mark() {
+        return mark.getAsInt();
+    }
+
+    @Benchmark
+    public int selfPlay() {
+        return self_play.getAsInt();
+    }
+}
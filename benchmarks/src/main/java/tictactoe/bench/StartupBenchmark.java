@@ -0,0 +1,50 @@
+package tictactoe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// The first move of a game in a fresh JVM (milliseconds), with the per-size tables built on the spot or read from
+// the TableCache. Every fork measures a single move, so the result is the average over the forks. The cache is the
+// default one in ~/.cache/tictactoe, which the first fork with cache=on fills if it is empty. JMH has loaded many
+// JDK classes before the measurement starts, so the time of a real cold start is longer, see "Fast startup" in
+// the README for that.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @Param({"7", "15", "40", "100"})
+    public int size;
+
+    @Param({"on", "off"})
+    public String cache;
+
+    private IntSupplier first_move;
+
+    @Setup
+    public void setup() {
+        if (cache.equals("off"))
+            System.setProperty("tictactoe.cache.dir", "");
+        first_move = Workload.of(IntSupplier.class, "firstMove", size);
+    }
+
+    @Benchmark
+    public int firstMove() {
+        return first_move.getAsInt();
+    }
+}
@@ -0,0 +1,45 @@
+package tictactoe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Win detection after a mark: TicTacToe.checkWinning on random positions of every board size, from a few marks
+// to an almost full board.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinCheckBenchmark {
+
+    @Param({"3", "4", "5", "6", "7", "19", "100"})
+    public int size;
+
+    @Param({"SPARSE", "MID_GAME", "NEAR_FULL"})
+    public String fill;
+
+    private IntSupplier check_winning;
+
+    @Setup
+    public void setup() {
+        check_winning = Workload.of(IntSupplier.class, "checkWinning", size, Workload.fraction(fill), 42L);
+    }
+
+    @Benchmark
+    public int checkWinning() {
+        return check_winning.getAsInt();
+    }
+}
@@ -0,0 +1,39 @@
+package tictactoe.bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+// Looks up a workload of the default package class Workloads, which is the only way for code in a named package
+// to reach the game classes. The lookup happens once per trial, the returned object is then called directly.
+final class Workload {
+
+    private Workload() {
+    }
+
+    // Call the factory method of Workloads with the given name and arguments, and return the workload it built
+    static <T> T of(Class<T> type, String name, Object... args) {
+        try {
+            for (Method method : Class.forName("Workloads").getMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == args.length)
+                    return type.cast(method.invoke(null, args));
+            }
+            throw new RuntimeException("No workload " + name + " with " + args.length + " arguments");
+        }
+        catch (ClassNotFoundException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // Fraction of the cells marked for the given fill parameter of a benchmark
+    static double fraction(String fill) {
+        return switch (fill) {
+            case "SPARSE" -> 0.2;
+            case "MID_GAME" -> 0.5;
+            case "NEAR_FULL" -> 0.9;
+            default -> throw new RuntimeException("Unknown fill " + fill);
+        };
+    }
+}
@@ -0,0 +1,432 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+
+// Alpha-beta (negamax) search on the bitboards, used by the computer in SEARCH mode.
+// - Wins are detected with the same WinChecker as the game, so the blocked-three and four-with-one-open-end rules
+//   of checkLine apply inside the search as well.
+// - Iterative deepening: the search is repeated with increasing depth until the time budget runs out, and the
+//   best move of the last completed depth is played. On small boards the whole game tree fits into the budget,
+//   in which case the play is perfect.
+// - Move ordering: the best move from the transposition table first, then by history heuristic, then moves
+//   closer to the center.
+// - Positions are cached in a bounded TranspositionTable keyed by the canonical PositionKey hash, so symmetric
+//   positions share one entry. Moves in the table are stored in the orientation of the canonical position.
+// Positions beyond the search depth are scored by counting, for both players, the 3-cell windows that only
+// contain their own marks.
+//
+// With a parallelism above 1, every depth is searched with young brothers wait at the root: the first (best
+// ordered) root move is searched alone to get a bound, then the remaining root moves are split across that many
+// workers on a ForkJoinPool. The workers share the transposition table and the best score found so far, each
+// one keeps its own move lists and history so they never write to the same memory apart from the table.
+// The table is not owned by the search: every search borrows one from a pool per size and table size and hands
+// it back when done. A game of the computer doesn't allocate its own then, and entries of earlier games, which
+// are as valid for the same positions in a later one, keep serving it.
+// The split visits about 11-14% more nodes than a single worker, and whether it is faster has only been checked on
+// one core, where it is not (ComputerBenchmark.search measures it). So the parallelism stays 1 unless set, e.g.
+// with Simulator --parallelism or a Tournament player's parallelism=N, until it has been measured on more cores.
+public class AlphaBetaSearch {
+
+    public static final int WIN = 1_000_000;
+    private static final int INFINITY = WIN + 1;
+    private static final int MAX_MATE_PLY = 64;
+    private static final int[] WINDOW_SCORE = {0, 1, 10, 0};   // Indexed by the number of own marks in a window
+
+    // Pools shared by all searches with the same parallelism, so games don't each start their own threads
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+    // Idle transposition tables by size and table bits, as size << 8 | bits. Last in, first out, so a thread
+    // searching one move after the other gets back the table it just filled
+    private static final ConcurrentHashMap<Integer, ConcurrentLinkedDeque<TranspositionTable>> tables =
+            new ConcurrentHashMap<>();
+
+    private final int size;
+    private final long full;                // Bitboard with all cells of the board set
+    private final WinChecker wins;
+    private final int cells;
+    private final long[] keys;              // Zobrist keys per symmetry, player and cell, see PositionKey
+    private final Symmetry symmetry;
+    private final long[] windows;           // Every 3-cell window on a line, as a bitboard
+    private final int[] center_bonus;
+    private final int table_bits;
+    private TranspositionTable table;       // Borrowed for the duration of a search
+
+    private Worker[] workers;               // workers[0] searches alone, all of them split the root in parallel
+    private ForkJoinPool pool;              // Null when searching single-threaded
+
+    private volatile boolean cancelled;     // Set from another thread to stop the searches, see setCancelled
+
+    // Per search state shared by the workers
+    private volatile boolean aborted;
+    private long deadline;
+    private int completed_depth;
+    private int root_score;                 // Best score and move found so far in the current iteration
+    private int root_move;
+
+    // Constructor for a single-threaded search, the transposition tables it borrows have 2^table_bits entries
+    public AlphaBetaSearch(int size, int table_bits) {
+        if (!Board.fitsBitBoard(size))
+            throw new RuntimeException("Only boards up to 8x8 can be searched!");
+        this.size = size;
+        cells = size * size;
+        full = cells == Long.SIZE ? -1L : (1L << cells) - 1;
+        wins = WinChecker.forSize(size);
+        this.table_bits = table_bits;
+        keys = PositionKey.tableFor(size);
+        symmetry = Symmetry.forSize(size);
+
+        windows = buildWindows();
+        center_bonus = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            center_bonus[cell] = size - Math.abs(2 * row - size + 1) / 2 - Math.abs(2 * col - size + 1) / 2;
+        }
+
+        setParallelism(1);
+    }
+
+    // Set the number of workers searching the root moves in parallel. 1 searches on the calling thread only
+    public void setParallelism(int parallelism) {
+        int count = Math.max(1, parallelism);
+        workers = new Worker[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new Worker();
+        }
+        pool = count == 1 ? null : sharedPool(count);
+    }
+
+    // The pool of the given number of threads shared by all searches, MonteCarloSearch included
+    static ForkJoinPool sharedPool(int parallelism) {
+        return pools.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    // Getter method
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    // While cancelled, searches stop within a few microseconds, the running one as well as later ones: they return
+    // the best move of the last completed depth, or -1 if there is none yet. Unlike the time budget this is
+    // not reset by the next search, so a cancel from another thread can't get lost in between
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    // Return the best cell for the given player to mark, searching for about the given amount of nanoseconds.
+    // x and o are the bitboards of the two players. The board must have at least one blank spot.
+    // The first depth is always searched completely, even if that takes longer than the budget
+    public int bestMove(long x, long o, int player, long time_budget) {
+        return bestMove(x, o, player, time_budget, Integer.MAX_VALUE);
+    }
+
+    // Same as above, but never searching deeper than max_depth plies
+    public int bestMove(long x, long o, int player, long time_budget, int max_depth) {
+        long own = player == Board.X ? x : o;
+        long opp = player == Board.X ? o : x;
+        PositionKey key = new PositionKey(size, x, o);
+        int depth_limit = Math.min(max_depth, Long.bitCount(~(x | o) & full));
+
+        ConcurrentLinkedDeque<TranspositionTable> idle =
+                tables.computeIfAbsent(size << 8 | table_bits, k -> new ConcurrentLinkedDeque<>());
+        table = idle.pollFirst();
+        if (table == null)
+            table = new TranspositionTable(table_bits);
+        try {
+            return search(own, opp, player, time_budget, depth_limit, key);
+        }
+        finally {
+            idle.addFirst(table);
+            table = null;
+        }
+    }
+
+    // Number of positions visited by the last search, summed over all workers
+    public long getNodes() {
+        long nodes = 0;
+        for (Worker worker : workers) {
+            nodes += worker.nodes;
+        }
+        return nodes;
+    }
+
+    // Deepest fully completed depth of the last search
+    public int getCompletedDepth() {
+        return completed_depth;
+    }
+
+    // Private methods:
+
+    // Iterative deepening up to depth_limit plies on the borrowed table
+    private int search(long own, long opp, int player, long time_budget, int depth_limit, PositionKey key) {
+        table.newSearch();
+        for (Worker worker : workers) {
+            worker.reset(key);
+        }
+        aborted = false;
+        completed_depth = 0;
+        deadline = System.nanoTime() + time_budget;
+
+        int best = -1;
+        for (int depth = 1; depth <= depth_limit; depth++) {
+            int score = pool == null
+                    ? workers[0].negamax(own, opp, player, depth, -INFINITY, INFINITY, 0)
+                    : searchRootParallel(own, opp, player, depth, key);
+            if (aborted)
+                break;
+            best = root_move;
+            completed_depth = depth;
+            if (Math.abs(score) >= WIN - MAX_MATE_PLY)     // Forced win or loss found, deeper search won't change it
+                break;
+        }
+        return best;
+    }
+
+    // Search one depth at the root with young brothers wait. Returns the score of the best root move
+    private int searchRootParallel(long own, long opp, int player, int depth, PositionKey key) {
+        Worker first = workers[0];
+        int s = key.getCanonicalSymmetry();
+        long entry = table.probe(key.getCanonicalHash());
+        int tt_move = entry != 0 && TranspositionTable.moveOf(entry) >= 0
+                ? symmetry.revert(s, TranspositionTable.moveOf(entry))
+                : -1;
+        int count = first.generateMoves(own | opp, 0, tt_move);
+        int[] list = Arrays.copyOf(first.moves[0], count);
+
+        // The eldest brother is searched alone, which usually gives a tight bound for all the others
+        root_score = -INFINITY;
+        root_move = list[0];
+        offer(list[0], first.searchRootMove(own, opp, player, depth, list[0], -INFINITY));
+
+        // The young brothers are dealt out round robin, so every worker gets some of the well ordered moves
+        List<Callable<Void>> tasks = new ArrayList<>(workers.length);
+        for (int w = 0; w < workers.length; w++) {
+            Worker worker = workers[w];
+            int start = w + 1;
+            tasks.add(() -> {
+                for (int i = start; i < list.length && !aborted; i += workers.length) {
+                    int alpha = currentScore();
+                    int score = worker.searchRootMove(own, opp, player, depth, list[i], alpha);
+                    if (score > alpha && !aborted)
+                        offer(list[i], score);
+                }
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        if (!aborted)
+            table.store(key.getCanonicalHash(), depth, TranspositionTable.EXACT, toTable(root_score, 0),
+                    symmetry.apply(s, root_move));
+        return root_score;
+    }
+
+    private synchronized int currentScore() {
+        return root_score;
+    }
+
+    // Record a root move if it is better than the best one so far
+    private synchronized void offer(int move, int score) {
+        if (score > root_score) {
+            root_score = score;
+            root_move = move;
+        }
+    }
+
+    // The search state of one thread. Everything but the transposition table is private to the worker, so
+    // searching allocates nothing and workers don't share any cache lines while searching
+    private final class Worker {
+
+        private final int[][] moves;            // Move list per ply
+        private final int[][] move_scores;
+        private final int[] history;            // History heuristic per cell
+        private final long[] hashes;            // The 8 symmetric hashes of the position at every ply, flattened
+        private long nodes;
+
+        private Worker() {
+            moves = new int[cells + 1][cells];
+            move_scores = new int[cells + 1][cells];
+            history = new int[cells];
+            hashes = new long[(cells + 2) * Symmetry.COUNT];
+        }
+
+        private void reset(PositionKey root) {
+            Arrays.fill(history, 0);
+            nodes = 0;
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                hashes[s] = root.getHash(s);
+            }
+        }
+
+        // Set the hashes of the next ply to those of this ply with the move made
+        private void makeHashes(int ply, int player, int move) {
+            int from = ply * Symmetry.COUNT;
+            int to = from + Symmetry.COUNT;
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                hashes[to + s] = hashes[from + s] ^ keys[PositionKey.index(cells, s, player, move)];
+            }
+        }
+
+        // Score of a single root move for the player at the root, proving only whether it beats alpha
+        private int searchRootMove(long own, long opp, int player, int depth, int move, int alpha) {
+            long next = own | (1L << move);
+            if (wins.isWinning(next, opp, move))
+                return WIN - 1;
+            if ((next | opp) == full)
+                return 0;
+            makeHashes(0, player, move);
+            return -negamax(opp, next, Board.opponent(player), depth - 1, -INFINITY, -alpha, 1);
+        }
+
+        // Score of the position for the player to move (own), searching depth more plies
+        private int negamax(long own, long opp, int player, int depth, int alpha, int beta, int ply) {
+            nodes++;
+            if ((nodes & 1023) == 0 && (cancelled || completed_depth > 0 && System.nanoTime() > deadline))
+                aborted = true;
+            if (aborted)
+                return 0;
+
+            int alpha_orig = alpha;
+            int tt_move = -1;
+            int s = PositionKey.canonical(hashes, ply * Symmetry.COUNT);
+            long key = hashes[ply * Symmetry.COUNT + s];
+            long entry = table.probe(key);
+            if (entry != 0) {
+                tt_move = TranspositionTable.moveOf(entry);
+                if (tt_move >= 0)
+                    tt_move = symmetry.revert(s, tt_move);
+                // No cutoff at the root, where the move itself is needed and not only the score
+                if (ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                    switch (TranspositionTable.flagOf(entry)) {
+                        case TranspositionTable.EXACT -> { return score; }
+                        case TranspositionTable.LOWER -> alpha = Math.max(alpha, score);
+                        case TranspositionTable.UPPER -> beta = Math.min(beta, score);
+                    }
+                    if (alpha >= beta)
+                        return score;
+                }
+            }
+
+            if (depth == 0)
+                return evaluate(own, opp);
+
+            int count = generateMoves(own | opp, ply, tt_move);
+            int[] list = moves[ply];
+            int best_score = -INFINITY;
+            int best_move = list[0];
+
+            for (int i = 0; i < count; i++) {
+                int move = list[i];
+                long next = own | (1L << move);
+                int score;
+                if (wins.isWinning(next, opp, move))
+                    score = WIN - ply - 1;
+                else if ((next | opp) == full)
+                    score = 0;
+                else {
+                    makeHashes(ply, player, move);
+                    score = -negamax(opp, next, Board.opponent(player), depth - 1, -beta, -alpha, ply + 1);
+                }
+                if (aborted)
+                    return 0;
+
+                if (score > best_score) {
+                    best_score = score;
+                    best_move = move;
+                    if (ply == 0)
+                        root_move = move;
+                }
+                if (score > alpha)
+                    alpha = score;
+                if (alpha >= beta) {
+                    history[move] += depth * depth;
+                    break;
+                }
+            }
+
+            int flag = best_score <= alpha_orig ? TranspositionTable.UPPER
+                    : best_score >= beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            table.store(key, depth, flag, toTable(best_score, ply), symmetry.apply(s, best_move));
+            return best_score;
+        }
+
+        // Fill the move list of the given ply with all blank cells, best candidates first. Returns the number of moves
+        private int generateMoves(long occupied, int ply, int tt_move) {
+            int[] list = moves[ply];
+            int[] scores = move_scores[ply];
+            int count = 0;
+            for (long empty = ~occupied & full; empty != 0; empty &= empty - 1) {
+                int cell = Long.numberOfTrailingZeros(empty);
+                int score = cell == tt_move ? Integer.MAX_VALUE : history[cell] * 16 + center_bonus[cell];
+
+                // Insertion sort, the lists are at most 49 moves long
+                int i = count++;
+                while (i > 0 && scores[i - 1] < score) {
+                    list[i] = list[i - 1];
+                    scores[i] = scores[i - 1];
+                    i--;
+                }
+                list[i] = cell;
+                scores[i] = score;
+            }
+            return count;
+        }
+
+        // Static evaluation for the player to move
+        private int evaluate(long own, long opp) {
+            int score = 0;
+            for (long window : windows) {
+                long mine = window & own;
+                long theirs = window & opp;
+                if (theirs == 0)
+                    score += WINDOW_SCORE[Long.bitCount(mine)];
+                else if (mine == 0)
+                    score -= WINDOW_SCORE[Long.bitCount(theirs)];
+            }
+            return score;
+        }
+    }
+
+    // Helper functions:
+
+    // Win scores depend on the distance to the root, so they are stored relative to the node in the table
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - MAX_MATE_PLY) return score + ply;
+        if (score <= -WIN + MAX_MATE_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - MAX_MATE_PLY) return score - ply;
+        if (score <= -WIN + MAX_MATE_PLY) return score + ply;
+        return score;
+    }
+
+    // All horizontal, vertical and diagonal windows of 3 consecutive cells
+    private long[] buildWindows() {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        long[] result = new long[4 * size * size];
+        int count = 0;
+        for (int[] direction : directions) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int end_row = row + 2 * direction[0];
+                    int end_col = col + 2 * direction[1];
+                    if (end_row < 0 || end_row >= size || end_col < 0 || end_col >= size)
+                        continue;
+                    long window = 0;
+                    for (int k = 0; k < 3; k++) {
+                        window |= 1L << ((row + k * direction[0]) * size + col + k * direction[1]);
+                    }
+                    result[count++] = window;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// A LogSink that hands messages to a background thread through a fixed ring buffer, so logging threads never
+// format text or wait for the output stream.
+// Every slot of the ring holds the parts of one message in preallocated arrays. A logging thread claims the next
+// sequence number with a CAS, fills the slot and publishes it by storing the sequence number into the slot. The
+// writer thread takes the published slots in order and formats all it finds into one batch, which is written to
+// the stream with a single print and flush. If the writer falls behind by a whole ring, new messages are
+// dropped instead of blocking the game, and the number of dropped messages is logged once there is room again.
+public final class AsyncLogSink implements LogSink, AutoCloseable {
+
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int MAX_BATCH = 64 * 1024;         // Characters written at once at most
+
+    private final PrintStream out;
+    private final int mask;                         // capacity - 1
+
+    // The slots, indexed by sequence & mask
+    private final AtomicLongArray published;        // Sequence number last published in the slot
+    private final long[] times;
+    private final LogLevel[] levels;
+    private final String[] components;
+    private final String[] templates;
+    private final int[] counts;
+    private final long[] args;                      // 3 per slot
+
+    private final AtomicLong claimed = new AtomicLong();   // Next sequence number to hand out
+    private volatile long consumed;                 // Next sequence number the writer takes
+    private volatile long written;                  // Sequence number up to which the output is flushed
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean idle;                  // Whether the writer is parked waiting for messages
+    private volatile boolean closed;
+
+    // Constructor, with room for capacity (rounded up to a power of two) messages waiting to be written
+    public AsyncLogSink(PrintStream out, int capacity) {
+        this.out = out;
+        int slots = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = slots - 1;
+        published = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            published.set(i, -1);
+        }
+        times = new long[slots];
+        levels = new LogLevel[slots];
+        components = new String[slots];
+        templates = new String[slots];
+        counts = new int[slots];
+        args = new long[3 * slots];
+
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void append(long time, LogLevel level, String component, String template, int count,
+                       long a, long b, long c) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= published.length()) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        times[slot] = time;
+        levels[slot] = level;
+        components[slot] = component;
+        templates[slot] = template;
+        counts[slot] = count;
+        args[3 * slot] = a;
+        args[3 * slot + 1] = b;
+        args[3 * slot + 2] = c;
+        published.lazySet(slot, sequence);     // Orders the writes above before the slot becomes visible
+
+        if (idle)
+            LockSupport.unpark(writer);
+    }
+
+    // Wait until everything appended so far is written
+    @Override
+    public void flush() {
+        long target = claimed.get();
+        while (written < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    // Getter method
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Write everything appended so far and stop the writer thread
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+    }
+
+    // Private methods:
+
+    // Body of the writer thread
+    private void write() {
+        StringBuilder batch = new StringBuilder(8192);
+        long next = 0;
+        long reported = 0;
+        while (!closed) {
+            int slot = (int) next & mask;
+            if (published.get(slot) == next) {
+                LogSink.format(batch, times[slot], levels[slot], components[slot], templates[slot], counts[slot],
+                        args[3 * slot], args[3 * slot + 1], args[3 * slot + 2]);
+                components[slot] = null;
+                templates[slot] = null;
+                consumed = ++next;
+                if (batch.length() < MAX_BATCH)
+                    continue;
+            }
+
+            long lost = dropped.sum();
+            if (lost != reported) {
+                LogSink.format(batch, System.currentTimeMillis(), LogLevel.WARN, "log",
+                        "{} messages dropped, the log could not keep up", 1, lost - reported, 0, 0);
+                reported = lost;
+            }
+            if (batch.length() > 0) {
+                out.print(batch);
+                out.flush();
+                batch.setLength(0);
+                written = next;
+                continue;
+            }
+
+            idle = true;
+            if (published.get((int) next & mask) != next)
+                LockSupport.parkNanos(this, IDLE_PARK);
+            idle = false;
+        }
+    }
+}
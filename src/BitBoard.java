@@ -0,0 +1,66 @@
+// Board stored as two 64-bit bitboards, one per player. The largest such board is 8x8 = 64 cells,
+// so every cell fits into a single long. Bit i of a bitboard corresponds to cell i = row * size + col.
+public final class BitBoard implements Board {
+
+    public static final int MAX_SIZE = 8;
+
+    private final int size;
+    private long x;             // Cells marked by X
+    private long o;             // Cells marked by O
+
+    public BitBoard(int size) {
+        if (size * size > Long.SIZE)
+            throw new RuntimeException("Board of size " + size + " does not fit into a bitboard!");
+        this.size = size;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int get(int cell) {
+        long bit = 1L << cell;
+        if ((x & bit) != 0) return X;
+        if ((o & bit) != 0) return O;
+        return EMPTY;
+    }
+
+    @Override
+    public void set(int cell, int player) {
+        long bit = 1L << cell;
+        if (player == X) x |= bit;
+        else o |= bit;
+    }
+
+    @Override
+    public void clear(int cell) {
+        long keep = ~(1L << cell);
+        x &= keep;
+        o &= keep;
+    }
+
+    // Bitboard of all cells marked by the given player, bit i being cell i
+    public long getBits(int player) {
+        return player == X ? x : o;
+    }
+
+    // Bitboard of all marked cells
+    public long getOccupied() {
+        return x | o;
+    }
+
+    @Override
+    public int getCount() {
+        return Long.bitCount(x | o);
+    }
+
+    @Override
+    public Board copy() {
+        BitBoard copy = new BitBoard(size);
+        copy.x = x;
+        copy.o = o;
+        return copy;
+    }
+}
@@ -0,0 +1,43 @@
+// The state of a game board, shared by the game logic, the computer player and the GUI.
+// Cells are addressed either by (row, col) or by a single index: row * size + col.
+// Players are represented by small int constants instead of the "x"/"o" strings so that
+// the hot paths never have to compare strings.
+// Boards of up to 64 cells are a BitBoard, which also hands out its cells as single longs (getBits), so the bitboard
+// based parts of the game cast to it where Board.fitsBitBoard holds. Larger boards only support the cell by cell
+// methods, see create(). The methods that only read the cells are in BoardView.
+public interface Board extends BoardView {
+
+    int EMPTY = 0;
+    int X     = 1;
+    int O     = 2;
+
+    // Mark the given cell with the given player
+    void set(int cell, int player);
+
+    // Remove the mark of the given cell
+    void clear(int cell);
+
+    // Return an independent copy of the board
+    Board copy();
+
+    // Return an empty board of the given size, stored the cheapest way for that size: a BitBoard up to 8x8, a
+    // DenseBoard with a bitset per player up to DenseBoard.MAX_SIZE, and a SparseBoard holding only the marked
+    // cells above that, where most of the board stays empty
+    static Board create(int size) {
+        if (size <= BitBoard.MAX_SIZE)
+            return new BitBoard(size);
+        if (size <= DenseBoard.MAX_SIZE)
+            return new DenseBoard(size);
+        return new SparseBoard(size);
+    }
+
+    // Whether boards of the given size are BitBoards, which the bitboard based parts of the game need
+    static boolean fitsBitBoard(int size) {
+        return size <= BitBoard.MAX_SIZE;
+    }
+
+    // Return the other player
+    static int opponent(int player) {
+        return player == X ? O : X;
+    }
+}
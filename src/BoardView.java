@@ -0,0 +1,27 @@
+// Read-only view of a game board: the cells can be read, but there is no way to change them. Board extends it with
+// the methods that mark and clear cells, GameSnapshot is a view that never changes.
+// Cells are addressed either by (row, col) or by a single index: row * size + col, and hold Board.EMPTY, Board.X
+// or Board.O.
+public interface BoardView {
+
+    // Length of one side of the board
+    int getSize();
+
+    // Return the player occupying the given cell, or EMPTY
+    int get(int cell);
+
+    // Number of marked cells
+    int getCount();
+
+    default int get(int row, int col) {
+        return get(toCell(row, col));
+    }
+
+    default boolean isEmpty(int row, int col) {
+        return get(toCell(row, col)) == Board.EMPTY;
+    }
+
+    default int toCell(int row, int col) {
+        return row * getSize() + col;
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Offline generator of OpeningBook files.
+// Solves the game completely for a small board size: every position reachable under the rules of
+// TicTacToe.move (X starts, the players alternate, a game ends on a win or a full board) is searched once, up to
+// symmetry, and its best move and outcome is written to book/book-<size>.bin.
+// Usage: java BookGenerator [directory] size...     e.g. java BookGenerator 3 4
+public class BookGenerator {
+
+    // Scores for the player to move. A win in d plies scores WIN_SCORE - d, a loss the negation, a draw 0,
+    // so perfect play wins as fast and loses as slow as possible
+    private static final int WIN_SCORE = 100;
+
+    private final int size;
+    private final int cells;
+    private final long full;
+    private final WinChecker wins;
+    private final Symmetry symmetry;
+    private final LongIntMap solved = new LongIntMap();   // Canonical key -> (score << 8) | best move
+
+    public BookGenerator(int size) {
+        this.size = size;
+        this.cells = size * size;
+        this.full = (1L << cells) - 1;
+        this.wins = WinChecker.forSize(size);
+        this.symmetry = Symmetry.forSize(size);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of("book");
+        int first = 0;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            directory = Path.of(args[0]);
+            first = 1;
+        }
+        Files.createDirectories(directory);
+        for (int i = first; i < args.length; i++) {
+            int size = Integer.parseInt(args[i]);
+            if (size < 3 || size > 4)
+                throw new RuntimeException("Only 3x3 and 4x4 boards can be solved completely!");
+
+            long start = System.nanoTime();
+            BookGenerator generator = new BookGenerator(size);
+            int score = generator.solve(0, 0);
+            Path file = directory.resolve(OpeningBook.fileName(size));
+            generator.write(file);
+            System.out.println(size + "x" + size + ": " + generator.solved.size() + " positions, X "
+                    + (score > 0 ? "wins" : score < 0 ? "loses" : "draws") + ", written to " + file + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    // Score of the position for the player to move, see WIN_SCORE
+    public int solve(long x, long o) {
+        int s = symmetry.canonical(x, o);
+        x = symmetry.apply(s, x);
+        o = symmetry.apply(s, o);
+        long key = x << cells | o;
+        int known = solved.get(key);
+        if (known != LongIntMap.MISSING)
+            return known >> 8;
+
+        boolean x_to_move = Long.bitCount(x) == Long.bitCount(o);
+        long own = x_to_move ? x : o;
+        long opp = x_to_move ? o : x;
+
+        int best_score = Integer.MIN_VALUE;
+        int best_move = -1;
+        for (long empty = ~(x | o) & full; empty != 0; empty &= empty - 1) {
+            int move = Long.numberOfTrailingZeros(empty);
+            long next = own | (1L << move);
+            int score;
+            if (wins.isWinning(next, opp, move)) {
+                score = WIN_SCORE - 1;
+            }
+            else if ((next | opp) == full) {
+                score = 0;
+            }
+            else {
+                int reply = x_to_move ? solve(next, opp) : solve(opp, next);
+                score = reply > 0 ? -reply + 1 : reply < 0 ? -reply - 1 : 0;
+            }
+            if (score > best_score) {
+                best_score = score;
+                best_move = move;
+            }
+        }
+
+        solved.put(key, best_score << 8 | best_move);
+        return best_score;
+    }
+
+    // Write all solved positions as an OpeningBook file
+    public void write(Path file) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(1, solved.size() * 2 - 1)) << 1;
+        long[] slots = new long[capacity];
+        solved.forEach((key, value) -> {
+            int score = value >> 8;
+            int outcome = score > 0 ? OpeningBook.WIN : score < 0 ? OpeningBook.LOSS : OpeningBook.DRAW;
+            long slot = key << 8 | (long) (value & 0x3F) << 2 | outcome;
+            int index = OpeningBook.hash(key) & (capacity - 1);
+            while (slots[index] != 0) {
+                index = (index + 1) & (capacity - 1);
+            }
+            slots[index] = slot;
+        });
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER + 8 * capacity);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(size).putInt(capacity)
+                .putInt(solved.size());
+        buffer.asLongBuffer().put(slots);
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // A minimal open addressing map from long to int, so millions of positions don't each need boxed objects
+    private static final class LongIntMap {
+
+        static final int MISSING = Integer.MIN_VALUE;
+
+        private long[] keys = new long[1 << 16];
+        private int[] values = new int[1 << 16];
+        private boolean[] used = new boolean[1 << 16];
+        private int count;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int index = OpeningBook.hash(key) & mask; used[index]; index = (index + 1) & mask) {
+                if (keys[index] == key)
+                    return values[index];
+            }
+            return MISSING;
+        }
+
+        void put(long key, int value) {
+            if (2 * (count + 1) > keys.length)
+                grow();
+            int mask = keys.length - 1;
+            int index = OpeningBook.hash(key) & mask;
+            while (used[index] && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            if (!used[index])
+                count++;
+            used[index] = true;
+            keys[index] = key;
+            values[index] = value;
+        }
+
+        int size() {
+            return count;
+        }
+
+        void forEach(Entry action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i])
+                    action.accept(keys[i], values[i]);
+            }
+        }
+
+        private void grow() {
+            long[] old_keys = keys;
+            int[] old_values = values;
+            boolean[] old_used = used;
+            keys = new long[old_keys.length * 2];
+            values = new int[old_keys.length * 2];
+            used = new boolean[old_keys.length * 2];
+            count = 0;
+            for (int i = 0; i < old_keys.length; i++) {
+                if (old_used[i])
+                    put(old_keys[i], old_values[i]);
+            }
+        }
+
+        interface Entry {
+            void accept(long key, int value);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+// Plays a move of the player in each of many games and the computer's replies in one pass, e.g. all the moves a
+// server received during the last batch (see SessionManager.playAll).
+// The positions to answer are kept as a structure of arrays: the bitboards, the cells X could win on and the
+// last X of the games lie next to each other, so the replies of the plain BLOCKER computers are a loop over a few
+// long and int arrays running Computer.blockerReply, without touching the game objects. Games that can't be
+// answered from the arrays (SEARCH and MCTS computers, boards above 8x8, other strategies) call their
+// Strategy.play instead.
+// The games are handled in tiles of TILE games: the X moves of a tile are made, its positions gathered, its
+// replies computed and marked, then the next tile follows. A tile's games are still in the cache when their
+// replies are marked, which they wouldn't be after a pass over thousands of games. The tiles are dealt out to the
+// workers of a ForkJoinPool, a batch of a single tile runs on the caller's thread.
+// The random choices are drawn from each game's own computer, so a game gets the same replies as with play().
+// A batch is not thread-safe, and its games must not be played on by anyone else while it runs.
+public final class BotBatch {
+
+    private static final int TILE = 64;             // Games handled together by one task
+
+    private final ForkJoinPool pool;                // Null when playing on the caller's thread only
+
+    // The positions to answer, indexed like the games passed to play()
+    private SplittableRandom[] randoms = new SplittableRandom[TILE];
+    private byte[] sizes = new byte[TILE];
+    private boolean[] direct = new boolean[TILE];   // Whether the reply comes from Strategy.play
+    private long[] xs = new long[TILE];
+    private long[] os = new long[TILE];
+    private long[] must_block = new long[TILE];     // Cells where X would win
+    private int[] lasts = new int[TILE];            // Cell of the X to reply to
+    private int[] replies = new int[TILE];
+
+    // Constructor, playing on up to the given number of threads
+    public BotBatch(int parallelism) {
+        pool = parallelism > 1 ? AlphaBetaSearch.sharedPool(parallelism) : null;
+    }
+
+    // Mark (rows[i], cols[i]) as X in games[i] and let its computer reply, as TicTacToe.play, for the first count
+    // games, which must all be different. results[i] is set to the result of the i-th game's move
+    public void play(TicTacToe[] games, int[] rows, int[] cols, MoveResult[] results, int count) {
+        if (replies.length < count)
+            grow(count);
+        if (pool == null || count <= TILE) {
+            play(games, rows, cols, results, 0, count);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>((count + TILE - 1) / TILE);
+        for (int from = 0; from < count; from += TILE) {
+            int start = from;
+            int end = Math.min(count, from + TILE);
+            tasks.add(() -> {
+                play(games, rows, cols, results, start, end);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+    }
+
+    // Private methods:
+
+    // Play the games from one index up to another, one tile at a time
+    private void play(TicTacToe[] games, int[] rows, int[] cols, MoveResult[] results, int from, int to) {
+        for (int start = from; start < to; start += TILE) {
+            int end = Math.min(to, start + TILE);
+            for (int i = start; i < end; i++) {
+                results[i] = games[i].move(Board.X, rows[i], cols[i]);
+                if (results[i] == MoveResult.ONGOING)
+                    gather(i, games[i], rows[i] * games[i].getSize() + cols[i]);
+            }
+            for (int i = start; i < end; i++) {
+                if (results[i] == MoveResult.ONGOING && !direct[i]) {
+                    long timer = Metrics.startTimer();
+                    replies[i] = Computer.blockerReply(sizes[i], xs[i], os[i], must_block[i], lasts[i] / sizes[i],
+                            lasts[i] % sizes[i], randoms[i]);
+                    Computer.countReply(timer);     // Computer.play counts the direct ones
+                }
+            }
+            for (int i = start; i < end; i++) {
+                if (results[i] != MoveResult.ONGOING)
+                    continue;
+                TicTacToe game = games[i];
+                int size = game.getSize();
+                int cell = direct[i] ? game.getStrategy().play(rows[i], cols[i]) : replies[i];
+                results[i] = game.move(Board.O, cell / size, cell % size);
+            }
+            Arrays.fill(randoms, start, end, null);
+        }
+    }
+
+    // Copy the position of a game, whose last mark was an X at the given cell, into the arrays
+    private void gather(int i, TicTacToe game, int cell) {
+        Computer bot = game.getBot();
+        lasts[i] = cell;
+        direct[i] = bot == null || !bot.isBatchable();
+        if (direct[i])
+            return;
+        BitBoard board = (BitBoard) game.getState();     // Batchable bots only play on bitboards
+        randoms[i] = bot.getRandomSource();
+        sizes[i] = (byte) game.getSize();
+        xs[i] = board.getBits(Board.X);
+        os[i] = board.getBits(Board.O);
+        must_block[i] = bot.blocksWins() ? game.getThreats().getWinningCells(Board.X) : 0;
+    }
+
+    private void grow(int count) {
+        int capacity = Integer.highestOneBit(count - 1) << 1;
+        randoms = Arrays.copyOf(randoms, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        direct = Arrays.copyOf(direct, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        os = Arrays.copyOf(os, capacity);
+        must_block = Arrays.copyOf(must_block, capacity);
+        lasts = Arrays.copyOf(lasts, capacity);
+        replies = Arrays.copyOf(replies, capacity);
+    }
+}
@@ -1,217 +1,352 @@
-import java.util.HashSet;
-import java.util.Random;
-import java.util.Set;
-
-// A simple computer player
-// Strategy: Whenever a new X is placed, it will check for a radius of 2 surrounding that new X to see whether
-// or not there is another X nearby. If there is, it will randomly block one of the open spaces near the X to
-// prevent a cluster of XXX to be formed.
-public class Computer {
-
-    // Coordinates are stored as a string of length 2, with the first character being the row index and
-    // the second one the column index. This is possible because the maximum allowed board size is 7
-    // which is single digit. This allows for easy coordinate comparison without having to implement
-    // a new class
-    private final Set<String> blank_space = new HashSet<>();     // To keep track of all blank spaces ;)
-    private final Set<String> marked_O    = new HashSet<>();      // To keep track of all O-marked spaces
-    private final Set<String> marked_X    = new HashSet<>();
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The computer player, with four strategies to choose from (see Mode).
+// Up to 8x8 they work on the bitboards of the game (bit row * size + col for every cell), and sets of candidate
+// moves are bitboards as well, so choosing a move allocates nothing.
+// BLOCKER: A simple computer player, the default one. Whenever a new X is placed, it will check for a radius of 2
+// surrounding that new X to see whether or not there is another X nearby. If there is, it will randomly block one
+// of the open spaces near the X to prevent a cluster of XXX to be formed.
+// GUARD: BLOCKER, except that if X could win with its next mark, it blocks that spot first. The spots are looked
+// up in the game's ThreatIndex.
+// SEARCH: A strong computer player, running an AlphaBetaSearch within a time budget per move. It plays perfectly
+// on boards small enough to be searched completely within the budget. If an OpeningBook was generated for the
+// board size, moves are looked up there instead of searched.
+// MCTS: A MonteCarloSearch within the same time budget, optionally capped at a number of playouts. It works on any
+// board size, including those too large for SEARCH, and keeps its tree from one move to the next.
+// Boards larger than 8x8 don't fit into bitboards. There BLOCKER and GUARD only look at the cells around the last
+// X (see playAround), so a move costs the same on a 100x100 board as on a 9x9 one, and SEARCH plays GUARD.
+// The computer plays O, unless created for X, which is supported up to 8x8 and in MCTS mode on any size (for bot
+// against bot games, see Tournament).
+public class Computer implements Strategy {
+
+    public enum Mode { BLOCKER, SEARCH, MCTS, GUARD }
+
+    public static final long DEFAULT_TIME_BUDGET = 5;      // In milliseconds, per move
+    private static final int TABLE_BITS = 16;               // Transposition table entries of the search, as 2^n
+
+    private static final Logger log = Logger.get("computer");
+    private static final Counter moves = Metrics.counter("computer.moves");
+    private static final Counter search_nodes = Metrics.counter("computer.search_nodes");
+    private static final Counter playouts = Metrics.counter("computer.playouts");
+    private static final LatencyHistogram think_latency = Metrics.histogram("computer.think_ns");
 
     private final TicTacToe game;
+    private final int player;                   // Board.O, or Board.X
     private final int size;
-
-    // Constructor, also fill the blankSpace map with all coordinates of the board
+    private final Neighborhood neighborhood;    // Shared by all games of the size
+    private SplittableRandom random;
+    private final Mode mode;
+    private final boolean blocks_wins;          // Whether spots where X could win with its next mark come first
+    private final AlphaBetaSearch search;       // Only used in SEARCH mode
+    private final OpeningBook book;             // Only used in SEARCH mode, null if there is no book for the size
+    private final MonteCarloSearch mcts;        // Only used in MCTS mode
+    private long time_budget;                   // In nanoseconds
+    private int depth_limit = Integer.MAX_VALUE;    // Plies the SEARCH strategy looks ahead at most
+    private long last_nodes;                    // Positions searched for the last move
+
+    // Only used on boards larger than 8x8
+    private int[] pending = new int[16];        // Cells where X could win, checked again before each move
+    private int pending_count;
+    private final int[] candidates = new int[20];
+
+    // Constructor, for the simple BLOCKER strategy
     public Computer(TicTacToe game) {
+        this(game, Mode.BLOCKER);
+    }
+
+    // Constructor, with the given strategy
+    public Computer(TicTacToe game, Mode mode) {
+        this(game, mode, Board.O);
+    }
+
+    // Constructor, with the given strategy playing the given player
+    public Computer(TicTacToe game, Mode mode, int player) {
         this.game = game;
+        this.mode = mode;
+        this.player = player;
         size = game.getSize();
+        neighborhood = Neighborhood.forSize(size);
+        boolean small = Board.fitsBitBoard(size);
+        if (player != Board.O && (player != Board.X || !small && mode != Mode.MCTS))
+            throw new RuntimeException("The computer only plays X up to 8x8, or with MCTS!");
+        random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        search = mode == Mode.SEARCH && small ? new AlphaBetaSearch(size, TABLE_BITS) : null;
+        book = mode == Mode.SEARCH && small ? OpeningBook.forSize(size) : null;
+        mcts = mode == Mode.MCTS ? new MonteCarloSearch(size) : null;
+        blocks_wins = mode != Mode.BLOCKER;
+        time_budget = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_BUDGET);
+    }
 
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                blank_space.add(toCoordinate(row, col));
-            }
-        }
+    // Getter method
+    public Mode getMode() {
+        return mode;
     }
 
-    // Make a move. Arguments are the coordinate of the last placed X
-    public void play(int row, int col) {
+    @Override
+    public String getName() {
+        return mode.toString().toLowerCase();
+    }
 
-        marked_X.add(toCoordinate(row, col));
+    @Override
+    public long getNodes() {
+        return last_nodes;
+    }
 
-        if (marked_O.isEmpty()) {
-            playRandom(blank_space);
-        }
-        else {
-            Set<String> possible_moves = possibleMoves(row, col);
-            if (possible_moves.isEmpty()) {
-                playRandom(blank_space);
-            } else {
-                playRandom(possible_moves);
-            }
-        }
+    // Reseed the random choices of the BLOCKER strategy, to replay games deterministically
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+        if (mcts != null)
+            mcts.setSeed(seed);
     }
 
-    // Make a random move within a given amount of options
-    private void playRandom(Set<String> set) {
-        set.removeAll(marked_X);
-        String coordinate = getRandom(set);
-        int row = Character.getNumericValue(coordinate.charAt(0));
-        int col = Character.getNumericValue(coordinate.charAt(1));
+    // Set how long the SEARCH and MCTS strategies may think per move
+    public void setTimeBudget(long amount, TimeUnit unit) {
+        time_budget = unit.toNanos(amount);
+    }
 
-        blank_space.remove(coordinate);
-        marked_O.add(coordinate);
-        String oh = "o";
-        game.mark(oh, row, col);
+    // Set how many plies the SEARCH strategy may look ahead at most, on top of the time budget. A search that
+    // completes its depth within the budget chooses the same move on every machine
+    public void setDepthLimit(int depth_limit) {
+        this.depth_limit = depth_limit;
     }
 
-    //Helper functions:
+    // Set how many random playouts the MCTS strategy may run per move at most, on top of the time budget
+    public void setPlayoutBudget(long playouts) {
+        if (mcts != null)
+            mcts.setMaxPlayouts(playouts);
+    }
 
-    // https://stackoverflow.com/questions/124671/picking-a-random-element-from-a-set
-    private String getRandom(Set<String> set) {
-        return set.stream().skip(new Random().nextInt(set.size())).findFirst().orElse(null);
+    // Set how many threads the SEARCH strategy splits its root moves across, and the MCTS strategy its playouts.
+    // 1 searches on the caller's thread
+    public void setParallelism(int parallelism) {
+        if (search != null)
+            search.setParallelism(parallelism);
+        if (mcts != null)
+            mcts.setParallelism(parallelism);
     }
 
-    // Check if the given coordinate is valid
-    private boolean isInBound(int row, int col) {
-        return 0 <= row && row < size && 0 <= col && col < size;
+    // Getter method, null unless in MCTS mode. Its nodes and playouts per second describe the last move
+    public MonteCarloSearch getMonteCarloSearch() {
+        return mcts;
     }
 
-    // Convert a coordinate to its String representation
-    private String toCoordinate(int row, int col) {
-        return Integer.toString(row) + col;
+    // Choose a move. Arguments are the coordinate of the last placed X (the last O if the computer plays X, or
+    // (-1, -1) before the first mark)
+    // Returns the cell index (row * size + col) of the chosen O, which the caller has to mark
+    @Override
+    public int play(int row, int col) {
+        setCancelled(false);
+        return think(row, col);
     }
 
-    // Private methods:
+    // Same as play(), but choosing the move on the given executor, e.g. to keep a slow search off the Swing
+    // event dispatch thread. The game must not change until the future is done. Cancelling the future stops the
+    // search; it may still run for a moment afterwards, so a cancelled game should be dropped rather than
+    // played on
+    public CompletableFuture<Integer> playAsync(int row, int col, Executor executor) {
+        setCancelled(false);
+        CompletableFuture<Integer> reply = CompletableFuture.supplyAsync(() -> think(row, col), executor);
+        reply.whenComplete((cell, e) -> {
+            if (reply.isCancelled())
+                setCancelled(true);
+        });
+        return reply;
+    }
 
-    // Return all the possible moves computer can makes to block the last placed X
-    private Set<String> possibleMoves(int row, int col) {
-        Set<String> result      = new HashSet<>();
-        Set<String> horizontal  = new HashSet<>();
-        Set<String> vertical    = new HashSet<>();
-        Set<String> diagonal    = new HashSet<>();
-        Set<String> a_diagonal  = new HashSet<>();
-
-        Set<String> horizontal_check  = checkHorizontal(row, col);
-        Set<String> vertical_check    = checkVertical(row, col);
-        Set<String> diagonal_check    = checkDiagonal(row, col);
-        Set<String> a_diagonal_check  = checkAntiDiagonal(row, col);
-
-        for (int i = col - 2; i <= col + 2; i++)
-            if (isInBound(row, i)) horizontal.add(toCoordinate(row, i));
-
-        for (int i = row - 2; i < row + 2; i++)
-            if (isInBound(i, col)) vertical.add(toCoordinate(i, col));
-
-        if (isInBound(row - 2, col - 2)) diagonal.add(toCoordinate(row - 2, col - 2));
-        if (isInBound(row - 1, col - 1)) diagonal.add(toCoordinate(row - 1, col - 1));
-        if (isInBound(row + 1, col + 1)) diagonal.add(toCoordinate(row + 1, col + 1));
-        if (isInBound(row + 2, col + 2)) diagonal.add(toCoordinate(row + 2, col + 2));
-
-        if (isInBound(row - 2, col + 2)) a_diagonal.add(toCoordinate(row - 2, col + 2));
-        if (isInBound(row - 1, col + 1)) a_diagonal.add(toCoordinate(row - 1, col + 1));
-        if (isInBound(row + 1, col - 1)) a_diagonal.add(toCoordinate(row + 1, col - 1));
-        if (isInBound(row + 2, col - 2)) a_diagonal.add(toCoordinate(row + 2, col - 2));
-
-        if (!horizontal_check.isEmpty()) {
-            horizontal.removeAll(horizontal_check);
-            result.addAll(horizontal);
-        }
-        if (!vertical_check.isEmpty()) {
-            vertical.removeAll(vertical_check);
-            result.addAll(vertical);
-        }
-        if (!diagonal_check.isEmpty()) {
-            diagonal.removeAll(diagonal_check);
-            result.addAll(diagonal);
-        }
-        if (!a_diagonal_check.isEmpty()) {
-            a_diagonal.removeAll(a_diagonal_check);
-            result.addAll(a_diagonal);
-        }
-        result.remove(toCoordinate(row, col));
-        result.removeAll(marked_O);
-        System.out.println("My possible moves are: " + result);
+    // Whether play() is the plain BLOCKER strategy on bitboards, which BotBatch computes from its arrays with
+    // blockerReply instead of calling play()
+    boolean isBatchable() {
+        return search == null && mcts == null && Board.fitsBitBoard(size) && player == Board.O;
+    }
+
+    // Getter method for BotBatch, whether the cells where X could win are passed to blockerReply
+    boolean blocksWins() {
+        return blocks_wins;
+    }
+
+    // Getter method for BotBatch, which draws the random choices of this computer's games from it
+    SplittableRandom getRandomSource() {
+        return random;
+    }
 
-        return result;
+    // Count a reply that BotBatch computed with blockerReply instead of play(), timed from start (see
+    // Metrics.startTimer), so batched games report the same computer metrics as the others
+    static void countReply(long start) {
+        think_latency.recordSince(start);
+        moves.increment();
     }
 
-    // Check the horizontal line that contains the newly placed X to see if there is any other Xs nearby
-    private Set<String> checkHorizontal(int row, int col) {
-        Set<String> result  = new HashSet<>();
-        String[][]  board   = game.getBoard();
+    // The BLOCKER reply to an X at (row, col) on a board of up to 8x8 given as bitboards, must_block being the
+    // cells where X would win. Depends on nothing but its arguments, so BotBatch can run it on many positions
+    static int blockerReply(int size, long x, long o, long must_block, int row, int col, SplittableRandom random) {
+        long full = size * size == Long.SIZE ? -1L : (1L << size * size) - 1;
+        long blank = ~(x | o) & full;
+        if (o == 0)
+            return getRandom(blank, random);
+        if (must_block != 0)
+            return getRandom(must_block, random);
+
+        long possible_moves = Neighborhood.forSize(size).candidates(row * size + col, x, x | o);
+        if (log.isEnabled(LogLevel.DEBUG))
+            log.log(LogLevel.DEBUG, "My possible moves are: {}", toCoordinates(possible_moves, size));
+        return getRandom(possible_moves != 0 ? possible_moves : blank, random);
+    }
 
-        int i = col < 2 ? 0 : col - 2;
+    //Helper functions:
 
-        while (i <= col + 2) {
-            if (i == col || !isInBound(row, i)) {
-                i++;
-                continue;
-            }
-            if (board[row][i].equals(TicTacToe.EX))
-                result.add(toCoordinate(row, i));
-            i++;
+    // Return a random cell out of a non empty bitboard
+    private static int getRandom(long set, SplittableRandom random) {
+        for (int skip = random.nextInt(Long.bitCount(set)); skip > 0; skip--) {
+            set &= set - 1;             // Clear the lowest set bit
         }
-        return result;
+        return Long.numberOfTrailingZeros(set);
     }
 
-    // Check the vertical line that contains the newly placed X to see if there is any other Xs nearby
-    private Set<String> checkVertical(int row, int col) {
-        Set<String> result  = new HashSet<>();
-        String[][]  board   = game.getBoard();
+    // Private methods:
+
+    // The move of the strategy, timed and counted
+    private int think(int row, int col) {
+        long start = Metrics.startTimer();
+        int cell = choose(row, col);
+        think_latency.recordSince(start);
+        moves.increment();
+        return cell;
+    }
 
-        int i = row < 2 ? 0 : row - 2;
+    private void setCancelled(boolean cancelled) {
+        if (search != null)
+            search.setCancelled(cancelled);
+        if (mcts != null)
+            mcts.setCancelled(cancelled);
+    }
 
-        while (i <= row + 2) {
-            if (i == row || !isInBound(i, col)) {
-                i++;
-                continue;
+    // The move of the strategy, see play()
+    private int choose(int row, int col) {
+        last_nodes = 0;
+        if (mcts != null) {
+            int cell = mcts.bestMove(game.getState(), game.getJournal(), player, time_budget);
+            last_nodes = mcts.getNodes();
+            search_nodes.add(last_nodes);
+            playouts.add(mcts.getPlayouts());
+            log.log(LogLevel.DEBUG, "{} nodes/s, {} playouts/s, {} playouts", mcts.getNodesPerSecond(),
+                    mcts.getPlayoutsPerSecond(), mcts.getPlayouts());
+            return cell;
+        }
+        if (!Board.fitsBitBoard(size))
+            return playAround(row, col);
+
+        BitBoard board = (BitBoard) game.getState();
+        long x = board.getBits(Board.X);
+        long o = board.getBits(Board.O);
+        if (search != null) {
+            int cell = book != null ? book.bestMove(x, o) : -1;
+            if (cell < 0) {
+                cell = search.bestMove(x, o, player, time_budget, depth_limit);
+                last_nodes = search.getNodes();
+                search_nodes.add(last_nodes);
             }
-            if (board[i][col].equals(TicTacToe.EX))
-                result.add(toCoordinate(i, col));
-            i++;
+            return cell;
         }
-        return result;
+
+        // GUARD first blocks the spots where the opponent would win with the next mark, looked up in the game's
+        // index. blockerReply answers X with O, playing X it gets the board with the players swapped
+        int opponent = Board.opponent(player);
+        long must_block = blocks_wins ? game.getThreats().getWinningCells(opponent) : 0;
+        return blockerReply(size, board.getBits(opponent), board.getBits(player), must_block, row, col, random);
     }
 
-    // Check the diagonal line that contains the newly placed X to see if there is any other Xs nearby
-    private Set<String> checkDiagonal(int row, int col) {
-        Set<String> result  = new HashSet<>();
-        String[][]  board   = game.getBoard();
+    // The BLOCKER and GUARD strategies for boards larger than 8x8, only looking at the cells within 4 steps of the last
+    // X: GUARD (and SEARCH, which plays it there) adds the cells around it where X could now win to the pending threats
+    // and blocks one of those still open. Otherwise the same radius 2 windows as possibleMoves give the candidates. A
+    // new X only changes the lines through it, so each cell is only checked along the direction it lies in. The cells
+    // around the X are looked up in the Neighborhood of the size
+    private int playAround(int row, int col) {
+        Board board = game.getState();
+        if (board.getCount() == 1)          // The first X, so no O yet
+            return getRandomBlank(board);
+
+        int last = row * size + col;
+        if (blocks_wins) {
+            int cell = blockPending(board, last);
+            if (cell >= 0)
+                return cell;
+        }
 
-        int i = row < 2 ? 0 : row - 2;
-        int j = col < 2 ? 0 : col - 2;
+        int count = neighborhood.candidates(board, last, Board.X, candidates);
+        log.log(LogLevel.DEBUG, "{} possible moves around ({}, {})", count, row, col);
+        return count > 0 ? candidates[random.nextInt(count)] : getRandomBlank(board);
+    }
 
-        while (i <= row + 2 &&  j <= col + 2) {
-            if (i == row && j == col || !isInBound(i, j)) {
-                i++;
-                j++;
-                continue;
+    // Add the cells around the last X where X could now win to the pending threats, and return one of those still
+    // open, or -1 if there is none
+    private int blockPending(Board board, int last) {
+        for (int d = 0; d < Neighborhood.DIRECTIONS; d++) {
+            for (int k = -Neighborhood.RADIUS; k <= Neighborhood.RADIUS; k++) {
+                int cell = neighborhood.get(last, d, k);
+                if (k != 0 && cell >= 0 && board.get(cell) == Board.EMPTY
+                        && WinChecker.isWinningAlong(board, neighborhood, Board.X, cell, d))
+                    addPending(cell);
             }
-            if (board[i][j].equals(TicTacToe.EX))
-                result.add(toCoordinate(i, j));
-            i++;
-            j++;
         }
-        return result;
+
+        // Threats that were blocked or taken back in the meantime are dropped
+        int open = 0;
+        for (int p = 0; p < pending_count; p++) {
+            int cell = pending[p];
+            if (board.get(cell) == Board.EMPTY && WinChecker.isWinningAround(board, Board.X, cell))
+                pending[open++] = cell;
+        }
+        pending_count = open;
+        return open > 0 ? pending[random.nextInt(open)] : -1;
+    }
+
+    private void addPending(int cell) {
+        for (int p = 0; p < pending_count; p++) {
+            if (pending[p] == cell)
+                return;
+        }
+        if (pending_count == pending.length)
+            pending = Arrays.copyOf(pending, pending_count * 2);
+        pending[pending_count++] = cell;
     }
 
-    // Check the anti diagonal line that contains the newly placed X to see if there is any other Xs nearby
-    private Set<String> checkAntiDiagonal(int row, int col) {
-        Set<String> result  = new HashSet<>();
-        String[][]  board   = game.getBoard();
+    // Return a random blank cell of a board that is not full. Random cells are tried first, which almost always
+    // hits on a large board, before walking the board from a random start
+    private int getRandomBlank(Board board) {
+        int cells = size * size;
+        for (int tries = 0; tries < 64; tries++) {
+            int cell = random.nextInt(cells);
+            if (board.get(cell) == Board.EMPTY)
+                return cell;
+        }
+        int start = random.nextInt(cells);
+        for (int k = 0; k < cells; k++) {
+            int cell = (start + k) % cells;
+            if (board.get(cell) == Board.EMPTY)
+                return cell;
+        }
+        throw new RuntimeException("The board is full!");
+    }
 
-        int i = row < 2 ? 0 : row - 2;
-        int j = col > size - 2 ? size - 1 : col + 2;
+    // Return all the possible moves computer can makes to block the last placed X, as a bitboard of blank cells.
+    // For each line through the X, if there is another X within a radius of 2 on that line, the blank cells within
+    // that radius are candidates, as looked up in the Neighborhood of the size. Package-private for the benchmarks
+    long possibleMoves(int row, int col, long x, long o) {
+        return neighborhood.candidates(row * size + col, x, x | o);
+    }
 
-        while (i <= row + 2 && j >= col - 2) {
-            if (i == row && j == col || !isInBound(i, j)) {
-                i++;
-                j--;
-                continue;
-            }
-            if (board[i][j].equals(TicTacToe.EX))
-                result.add(toCoordinate(i, j));
-            i++;
-            j--;
+    // List the cells of a bitboard as (row, col) pairs, only for printing
+    private static String toCoordinates(long set, int size) {
+        StringBuilder result = new StringBuilder("[");
+        for (; set != 0; set &= set - 1) {
+            int cell = Long.numberOfTrailingZeros(set);
+            result.append(result.length() > 1 ? ", " : "").append(cell / size).append(cell % size);
         }
-        return result;
+        return result.append(']').toString();
     }
 }
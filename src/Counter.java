@@ -0,0 +1,31 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// A named count in the Metrics registry, e.g. of the moves made. Backed by a LongAdder, so threads counting at
+// the same time add to their own cells instead of contending on one value; reading sums the cells up.
+public final class Counter {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    // Getter method
+    public String getName() {
+        return name;
+    }
+
+    // Getter method
+    public long get() {
+        return count.sum();
+    }
+}
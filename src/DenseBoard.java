@@ -0,0 +1,64 @@
+// Board stored as one bitset per player, for boards too large for a BitBoard but small enough that storing every
+// cell is cheaper than looking marks up in a hash table (a 32x32 board takes 16 longs per player).
+// Bit i of a bitset corresponds to cell i = row * size + col.
+public final class DenseBoard implements Board {
+
+    public static final int MAX_SIZE = 32;
+
+    private final int size;
+    private final long[] x;                 // Cells marked by X
+    private final long[] o;                 // Cells marked by O
+    private int count;
+
+    public DenseBoard(int size) {
+        this.size = size;
+        int words = (size * size + Long.SIZE - 1) / Long.SIZE;
+        x = new long[words];
+        o = new long[words];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int get(int cell) {
+        long bit = 1L << cell;              // Shifts only use the low 6 bits of cell
+        if ((x[cell >>> 6] & bit) != 0) return X;
+        if ((o[cell >>> 6] & bit) != 0) return O;
+        return EMPTY;
+    }
+
+    @Override
+    public void set(int cell, int player) {
+        if (get(cell) == EMPTY)
+            count++;
+        long bit = 1L << cell;
+        if (player == X) x[cell >>> 6] |= bit;
+        else o[cell >>> 6] |= bit;
+    }
+
+    @Override
+    public void clear(int cell) {
+        if (get(cell) != EMPTY)
+            count--;
+        long keep = ~(1L << cell);
+        x[cell >>> 6] &= keep;
+        o[cell >>> 6] &= keep;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public Board copy() {
+        DenseBoard copy = new DenseBoard(size);
+        System.arraycopy(x, 0, copy.x, 0, x.length);
+        System.arraycopy(o, 0, copy.o, 0, o.length);
+        copy.count = count;
+        return copy;
+    }
+}
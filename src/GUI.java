@@ -2,17 +2,33 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-
-public class GUI extends JFrame implements ActionListener {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class GUI extends JFrame implements ActionListener, GameListener {
+    private static final Logger log = Logger.get("gui");
+    private static final long THINK_TIME = 500;     // Milliseconds the searching computers may take per move
+    // The computers offered, each entry of BOT_NAMES playing the mode at the same index of BOT_MODES
+    private static final String[] BOT_NAMES = {"Easy", "Hard", "Monte Carlo"};
+    private static final Computer.Mode[] BOT_MODES = {Computer.Mode.BLOCKER, Computer.Mode.SEARCH, Computer.Mode.MCTS};
 
     private int size;
-    private String[][] board;
-    private JButton[][] buttons;
+    private JButton[] buttons;      // Indexed by cell, row * size + col
     private JComboBox<String> optionsList;
+    private JComboBox<String> botList;
     private JButton start_button;
     private JButton quit_button;
+    private JButton take_back_button;
     private JLabel infoLabel;
     private TicTacToe game;
+    private CompletableFuture<Integer> reply;       // The computer's move being thought about, null if none
+    private final ExecutorService thinker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computer");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final Font thick = new Font(Font.SANS_SERIF, Font.BOLD, 16);
     public GUI() {
         // Icon
@@ -43,12 +59,19 @@ public class GUI extends JFrame implements ActionListener {
         JLabel hint = new JLabel("Select a board size:");
         hint.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        String[] options = {"3x3", "4x4", "5x5", "6x6", "7x7"};
+        String[] options = {"3x3", "4x4", "5x5", "6x6", "7x7", "9x9", "15x15", "19x19"};
         optionsList = new JComboBox<>(options);
         optionsList.setSelectedIndex(0);
         optionsList.setAlignmentX(Component.CENTER_ALIGNMENT);
         optionsList.addActionListener(this);
 
+        JLabel bot_hint = new JLabel("Select a computer:");
+        bot_hint.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        botList = new JComboBox<>(BOT_NAMES);
+        botList.setSelectedIndex(0);
+        botList.setAlignmentX(Component.CENTER_ALIGNMENT);
+
         start_button = new JButton("Start");
         start_button.setAlignmentX(Component.CENTER_ALIGNMENT);
         start_button.addActionListener(this);
@@ -59,6 +82,10 @@ public class GUI extends JFrame implements ActionListener {
         panel.add(Box.createRigidArea(new Dimension(0, 10)));
         panel.add(optionsList);
         panel.add(Box.createRigidArea(new Dimension(0, 10)));
+        panel.add(bot_hint);
+        panel.add(Box.createRigidArea(new Dimension(0, 10)));
+        panel.add(botList);
+        panel.add(Box.createRigidArea(new Dimension(0, 10)));
         panel.add(start_button);
 
         this.getContentPane().add(panel);
@@ -67,7 +94,7 @@ public class GUI extends JFrame implements ActionListener {
         return panel;
     }
 
-    private JPanel gameGUI(int size) {
+    private JPanel gameGUI(int size, Computer.Mode mode) {
         // The panel
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
@@ -83,23 +110,29 @@ public class GUI extends JFrame implements ActionListener {
         infoLabel = new JLabel("TicTacToe");
         quit_button = new JButton("Quit game");
         quit_button.addActionListener(this);
+        take_back_button = new JButton("Take back");
+        take_back_button.addActionListener(this);
 
         menu.add(quit_button);
-        menu.add(Box.createRigidArea(new Dimension(80, 0)));
+        menu.add(Box.createRigidArea(new Dimension(10, 0)));
+        menu.add(take_back_button);
+        menu.add(Box.createRigidArea(new Dimension(40, 0)));
         menu.add(infoLabel);
 
         // The game itself
-        game = new TicTacToe(size);
-        board = game.getBoard();
-        buttons = new JButton[size][size];
+        game = new TicTacToe(size, mode);
+        game.setListener(this);
+        game.getBot().setTimeBudget(THINK_TIME, TimeUnit.MILLISECONDS);
+        buttons = new JButton[size * size];
         JPanel grid = new JPanel(new GridLayout(size, size));
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                buttons[i][j] = new JButton(TicTacToe.BLANK);
-                grid.add(buttons[i][j]);
-                buttons[i][j].setFocusable(false);
-                buttons[i][j].addActionListener(this);
-            }
+        for (int cell = 0; cell < buttons.length; cell++) {
+            JButton button = new JButton(TicTacToe.BLANK);
+            int clicked = cell;
+            button.setFont(thick);
+            button.setFocusable(false);
+            button.addActionListener(e -> cellPressed(clicked));
+            buttons[cell] = button;
+            grid.add(button);
         }
 
         panel.add(menu);
@@ -107,31 +140,71 @@ public class GUI extends JFrame implements ActionListener {
         return panel;
     }
 
-    private void drawBoard() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                String mark = board[i][j];
-                if (mark.equals(TicTacToe.EX)) {
-                    buttons[i][j].setText(board[i][j]);
-                    buttons[i][j].setFont(thick);
-                    buttons[i][j].setForeground(Color.RED);
-                }
-                if (mark.equals(TicTacToe.OH)) {
-                    buttons[i][j].setText(board[i][j]);
-                    buttons[i][j].setFont(thick);
-                    buttons[i][j].setForeground(Color.BLUE);
-                }
+    // Repaint the one button whose cell changed, the game tells us about every mark and every mark taken back
+    @Override
+    public void cellChanged(int cell, int player) {
+        JButton button = buttons[cell];
+        if (player == Board.X) {
+            button.setText(TicTacToe.EX);
+            button.setForeground(Color.RED);
+        }
+        else if (player == Board.O) {
+            button.setText(TicTacToe.OH);
+            button.setForeground(Color.BLUE);
+        }
+        else {
+            button.setText(TicTacToe.BLANK);    // Taken back
+        }
+    }
+
+    // The player's X is marked right away, the computer's reply is chosen on the thinker thread and marked back
+    // on the event dispatch thread, so a long search doesn't freeze the window
+    private void cellPressed(int cell) {
+        if (reply != null)
+            return;         // Not the player's turn yet
+        int row = cell / size;
+        int col = cell % size;
+        log.log(LogLevel.DEBUG, "Button [{}, {}] pressed", row, col);
+        MoveResult result = game.move(Board.X, row, col);
+        if (result != MoveResult.ONGOING) {
+            showResult(result);
+            return;
+        }
+
+        infoLabel.setText("Thinking...");
+        TicTacToe thinking = game;
+        CompletableFuture<Integer> future = game.getBot().playAsync(row, col, thinker);
+        reply = future;
+        future.whenCompleteAsync((o, e) -> {
+            if (reply != future || game != thinking)
+                return;     // Quit in the meantime
+            reply = null;
+            infoLabel.setText("TicTacToe");
+            if (e != null) {
+                log.log(LogLevel.WARN, "The computer could not move: {}", e);
+                return;
             }
+            showResult(game.move(Board.O, o / size, o % size));
+        }, SwingUtilities::invokeLater);
+    }
+
+    private void showResult(MoveResult result) {
+        switch (result) {
+            case X_WON -> endGame("Player won!");
+            case O_WON -> endGame("Computer won!");
+            case DRAW -> endGame("It's a draw!");
+            default -> {}   // ONGOING, or ILLEGAL when clicking a marked spot which is simply ignored
         }
     }
 
     private void endGame(String info) {
         infoLabel.setText(info);
+        setBoardEnabled(false);
+    }
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                buttons[i][j].setEnabled(false);
-            }
+    private void setBoardEnabled(boolean enabled) {
+        for (JButton button : buttons) {
+            button.setEnabled(enabled);
         }
     }
 
@@ -140,39 +213,33 @@ public class GUI extends JFrame implements ActionListener {
         if (e.getSource() == start_button) {
             String option = (String) optionsList.getSelectedItem();
             assert option != null;
-            size = Character.getNumericValue(option.charAt(0));
+            size = Integer.parseInt(option.substring(0, option.indexOf('x')));
+            Computer.Mode mode = BOT_MODES[botList.getSelectedIndex()];
 
             Container contentPane = this.getContentPane();
             contentPane.removeAll();
-            contentPane.add(gameGUI(size));
+            contentPane.add(gameGUI(size, mode));
             this.pack();
             return;
         }
 
         if (e.getSource() == quit_button) {
+            if (reply != null) {
+                reply.cancel(true);     // Stops the search, the game is dropped anyway
+                reply = null;
+            }
             Container contentPane = this.getContentPane();
             contentPane.removeAll();
             contentPane.add(startGUI());
+            return;
         }
 
-        try {
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    if (e.getSource() == buttons[i][j]) {
-                        System.out.println("Button [" + i + ", " + j + "] pressed");
-                        SwingUtilities.invokeLater(this::drawBoard);
-                        if (game.mark(TicTacToe.EX, i, j))
-                            endGame("Player won!");
-                    }
-                }
+        if (e.getSource() == take_back_button && reply == null) {
+            boolean finished = game.getResult().isFinished();
+            if (game.takeBack() && finished) {
+                infoLabel.setText("TicTacToe");
+                setBoardEnabled(true);
             }
         }
-        catch (NullPointerException | AlreadyMarkedException ignored) {}
-        catch (DrawException drawException) {
-            endGame("It's a draw!");
-        }
-        catch (BotWonException botWonException) {
-            endGame("Computer won!");
-        }
     }
 }
@@ -0,0 +1,8 @@
+// Told about every change of a game's board, e.g. by a view that only repaints what changed instead of the whole
+// board. Called on the thread that changed the game, right after the change; undo() reports the cleared cell as
+// Board.EMPTY, redo() like a new mark.
+public interface GameListener {
+
+    // The given cell (row * size + col) now holds the given player, Board.X, Board.O or Board.EMPTY
+    void cellChanged(int cell, int player);
+}
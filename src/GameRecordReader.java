@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Streams the records of one segment file written by GameRecordWriter, one record at a time through a small
+// buffer, so segments of any size can be read. The current record can be inspected move by move or replayed
+// into a new TicTacToe.
+//
+//   try (GameRecordReader reader = new GameRecordReader(file)) {
+//       while (reader.next()) {
+//           TicTacToe game = reader.replay();
+//       }
+//   }
+public final class GameRecordReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private boolean end_of_file;
+
+    // The current record
+    private int size;
+    private MoveResult result;
+    private int count;
+    private int[] moves = new int[64];
+
+    // Constructor, opening the segment file and checking its header
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+        if (!ensure(GameRecordWriter.HEADER)
+                || buffer.getInt() != GameRecordWriter.MAGIC || buffer.getInt() != GameRecordWriter.VERSION) {
+            channel.close();
+            throw new RuntimeException(file + " is not a game record segment of version " + GameRecordWriter.VERSION);
+        }
+    }
+
+    // Move on to the next record. Returns false at the end of the segment
+    public boolean next() throws IOException {
+        if (!ensure(1))
+            return false;
+        try {
+            ensure(GameRecordWriter.maxLength(0));      // Fewer bytes may be left for the last record of a file
+            size = getVarint();
+            result = MoveResult.values()[buffer.get()];
+            count = getVarint();
+            ensure(GameRecordWriter.maxLength(count));
+            if (count > moves.length)
+                moves = Arrays.copyOf(moves, Math.max(count, moves.length * 2));
+            for (int i = 0; i < count; i++) {
+                moves[i] = getVarint();
+            }
+        }
+        catch (BufferUnderflowException e) {
+            throw new RuntimeException("Truncated game record");
+        }
+        return true;
+    }
+
+    // Getter method
+    public int getSize() {
+        return size;
+    }
+
+    // Getter method
+    public MoveResult getResult() {
+        return result;
+    }
+
+    // Number of moves of the current record
+    public int getMoveCount() {
+        return count;
+    }
+
+    // Cell of the i-th move of the current record
+    public int getCell(int i) {
+        return MoveJournal.decodeCell(moves[i]);
+    }
+
+    // Player (Board.X or Board.O) of the i-th move of the current record
+    public int getPlayer(int i) {
+        return MoveJournal.decodePlayer(moves[i]);
+    }
+
+    // Play the current record move by move into a new game, without the computer replying, and return it.
+    // Throws if a move is illegal or the game doesn't end with the recorded result
+    public TicTacToe replay() {
+        TicTacToe game = new TicTacToe(size);
+        for (int i = 0; i < count; i++) {
+            int cell = getCell(i);
+            if (game.move(getPlayer(i), cell / size, cell % size) == MoveResult.ILLEGAL)
+                throw new RuntimeException("Illegal move " + i + " in game record");
+        }
+        if (game.getResult() != result)
+            throw new RuntimeException("Game record ends with " + game.getResult() + " instead of " + result);
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Private methods:
+
+    // Make sure at least the given number of bytes are buffered, reading more of the file if needed.
+    // Returns false if the file ends before, with the rest of the file buffered
+    private boolean ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+        if (bytes > buffer.capacity())
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(bytes) << 1).put(buffer).flip();
+        buffer.compact();
+        while (buffer.position() < bytes && !end_of_file) {
+            end_of_file = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    private int getVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+// Appends finished games to segment files in a directory, for replays and analysis (see GameRecordReader).
+// Records are collected in a direct buffer and written with one FileChannel write whenever it is full, so
+// recording costs a few bytes of copying per move. Once a segment reaches its maximum size the writer rolls over
+// to the next one. The writer can be shared by several threads.
+//
+// Segment file games-<n>.ttr, all numbers big endian:
+//   int MAGIC, int VERSION, then records back to back until the end of the file
+// A record, unsigned varints (7 bits per byte, lowest group first, high bit set on all but the last byte):
+//   varint size, byte result (MoveResult ordinal), varint number of moves,
+//   varint per move: (cell << 1) | (1 if O marked it), see MoveJournal
+public final class GameRecordWriter implements AutoCloseable {
+
+    public static final int MAGIC = 0x54545452;    // "TTTR"
+    public static final int VERSION = 1;
+    public static final int HEADER = 8;             // Bytes before the first record of a segment
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    private static final String PREFIX = "games-";
+    private static final String SUFFIX = ".ttr";
+
+    private final Path directory;
+    private final long segment_size;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private FileChannel channel;
+    private int segment;                    // Number of the current segment
+    private long position;                  // Bytes written to the current segment, including the buffer
+    private long records;
+
+    // Constructor, writing to new segments of at most DEFAULT_SEGMENT_SIZE bytes in the given directory
+    public GameRecordWriter(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    // Constructor, writing to new segments of at most segment_size bytes, numbered after the existing ones
+    public GameRecordWriter(Path directory, long segment_size) throws IOException {
+        this.directory = directory;
+        this.segment_size = segment_size;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.mapToInt(GameRecordWriter::segmentNumber).max().orElse(0);
+        }
+        openSegment();
+    }
+
+    // Name of the segment file with the given number
+    public static String fileName(int segment) {
+        return String.format("%s%06d%s", PREFIX, segment, SUFFIX);
+    }
+
+    // Number of a segment file, or 0 if the path isn't one
+    public static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX))
+            return 0;
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Append the record of a game. Usually called once the game is finished, but any state can be recorded
+    public synchronized void append(TicTacToe game) throws IOException {
+        MoveJournal journal = game.getJournal();
+        if (buffer.remaining() < maxLength(journal.size()))
+            drain();
+        encode(game, buffer);
+        records++;
+        if (position + buffer.position() >= segment_size)
+            roll();
+    }
+
+    // Append records encoded by encode(), from the position to the limit of the given buffer. Lets threads that
+    // record many games batch them up before taking the lock
+    public synchronized void append(ByteBuffer encoded, int count) throws IOException {
+        if (buffer.remaining() < encoded.remaining())
+            drain();
+        if (buffer.remaining() < encoded.remaining()) {
+            position += encoded.remaining();
+            write(encoded);
+        }
+        else {
+            buffer.put(encoded);
+        }
+        records += count;
+        if (position + buffer.position() >= segment_size)
+            roll();
+    }
+
+    // Write the record of a game into the buffer, which needs at least maxLength() bytes remaining
+    public static void encode(TicTacToe game, ByteBuffer out) {
+        MoveJournal journal = game.getJournal();
+        putVarint(out, game.getSize());
+        out.put((byte) game.getResult().ordinal());
+        putVarint(out, journal.size());
+        for (int i = 0; i < journal.size(); i++) {
+            putVarint(out, journal.get(i));
+        }
+    }
+
+    // Upper bound of the length in bytes of a record with the given number of moves
+    public static int maxLength(int moves) {
+        return 5 + 1 + 5 + 5 * moves;
+    }
+
+    // Write out all buffered records
+    public synchronized void flush() throws IOException {
+        drain();
+    }
+
+    // Getter method
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        drain();
+        channel.force(false);
+        channel.close();
+    }
+
+    // Private methods:
+
+    private void openSegment() throws IOException {
+        segment++;
+        channel = FileChannel.open(directory.resolve(fileName(segment)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        position = 0;
+    }
+
+    // Finish the current segment and continue in a new one
+    private void roll() throws IOException {
+        drain();
+        channel.close();
+        openSegment();
+    }
+
+    // Write the buffer to the channel and empty it
+    private void drain() throws IOException {
+        buffer.flip();
+        position += buffer.remaining();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,89 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The threads that hosted games run on. It can be backed either by a fixed pool of platform threads or by one
+// virtual thread per task, so both can be compared under the same load. Virtual threads need Java 21 or newer;
+// they are looked up reflectively so the game still builds and runs on older JDKs, where VIRTUAL falls back
+// to a pool of platform threads (see isVirtual()).
+public class GameScheduler implements AutoCloseable {
+
+    public enum Mode { PLATFORM, VIRTUAL }
+
+    private final Mode mode;
+    private final boolean virtual;          // Whether virtual threads are really used
+    private final ExecutorService executor;
+
+    private GameScheduler(Mode mode, int threads) {
+        this.mode = mode;
+        ExecutorService virtual_executor = mode == Mode.VIRTUAL ? newVirtualExecutor() : null;
+        virtual = virtual_executor != null;
+        executor = virtual ? virtual_executor : Executors.newFixedThreadPool(threads, daemonThreads());
+    }
+
+    // A scheduler running on the given number of platform threads
+    public static GameScheduler platform(int threads) {
+        return new GameScheduler(Mode.PLATFORM, threads);
+    }
+
+    // A scheduler starting a virtual thread per task, if the JDK supports it
+    public static GameScheduler virtual() {
+        return new GameScheduler(Mode.VIRTUAL, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Create a scheduler from its name, "platform" or "virtual" (case insensitive)
+    public static GameScheduler of(String name) {
+        return Mode.valueOf(name.toUpperCase()) == Mode.VIRTUAL
+                ? virtual()
+                : platform(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Getter method
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Whether tasks really run on virtual threads. False for VIRTUAL on a JDK without virtual threads
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // Getter method
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    // Return a new ordered mailbox running on this scheduler
+    public SessionMailbox newMailbox() {
+        return new SessionMailbox(executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Helper functions:
+
+    // Executors.newVirtualThreadPerTaskExecutor(), or null if this JDK does not have it
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "game-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
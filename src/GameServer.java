@@ -0,0 +1,255 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// A small local HTTP server driving games hosted by a SessionManager. Every response is plain text, one value
+// per line, so it can be used with curl or a line-based client:
+//
+//   POST   /games?size=N&bot=B           -> ID of the new game, B: "blocker" (default), "guard", "search", "mcts"
+//   POST   /games/{id}/moves?row=R&col=C -> result of the move (see MoveResult), followed by the board
+//   GET    /games/{id}                   -> current result, followed by the board
+//   DELETE /games/{id}                   -> OK
+//   GET    /metrics                      -> counters and latency histograms in the Prometheus text format
+//
+// The board is written as one line per row with 'x', 'o' and '.' for blank spots.
+public class GameServer implements AutoCloseable {
+
+    private static final Logger log = Logger.get("server");
+    private static final int WAITING_THREADS = 512;     // Request threads of batched mode without virtual threads
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SessionManager sessions;
+    private MoveBatcher batcher;            // Null if every move is played on its request thread
+
+    // Constructor, the server only listens on the loopback interface and handles requests on the given number
+    // of platform threads
+    public GameServer(int port, SessionManager sessions, int threads) throws IOException {
+        this(port, sessions, Executors.newFixedThreadPool(threads));
+    }
+
+    // Constructor, requests are handled on the given executor, which is shut down when the server is closed
+    public GameServer(int port, SessionManager sessions, ExecutorService executor) throws IOException {
+        this.sessions = sessions;
+        this.executor = executor;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/games", this::handle);
+        server.createContext("/metrics", Metrics::handle);
+    }
+
+    // Play the moves through the given batcher, which computes the replies of many games at once
+    public void setBatcher(MoveBatcher batcher) {
+        this.batcher = batcher;
+    }
+
+    public void start() {
+        server.start();
+        log.log(LogLevel.INFO, "Game server listening on {}", server.getAddress());
+    }
+
+    // Getter method
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        if (batcher != null)
+            batcher.close();
+        executor.shutdownNow();
+    }
+
+    // Start a server on the given port (default 8080). Idle games are evicted after 10 minutes
+    // With a second argument "platform" or "virtual", the moves of every game run through an ordered mailbox on
+    // a GameScheduler of that kind. With "batched", the moves of all games are played in batches by a
+    // MoveBatcher. Otherwise they run on the request threads under the striped locks
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length < 2 || args[1].equals("batched")) {
+            SessionManager sessions = new SessionManager(10, TimeUnit.MINUTES);
+            if (args.length < 2) {
+                GameServer server = new GameServer(port, sessions, threads);
+                closeOnShutdown(server, sessions, null);
+                server.start();
+                return;
+            }
+            // Request threads only wait for their batch, the more of them the larger the batches can get. Without
+            // virtual threads a pool of one thread per core would never have more than that many moves waiting, so
+            // it gets a large pool of platform threads instead
+            GameScheduler scheduler = GameScheduler.virtual();
+            ExecutorService requests = scheduler.getExecutor();
+            if (!scheduler.isVirtual()) {
+                scheduler.close();
+                log.log(LogLevel.INFO, "No virtual threads, batching up to {} waiting requests on platform threads",
+                        WAITING_THREADS);
+                requests = Executors.newFixedThreadPool(WAITING_THREADS);
+            }
+            GameServer server = new GameServer(port, sessions, requests);
+            server.setBatcher(new MoveBatcher(sessions, threads, 4096));
+            closeOnShutdown(server, sessions, scheduler);
+            server.start();
+            return;
+        }
+
+        GameScheduler scheduler = GameScheduler.of(args[1]);
+        log.log(LogLevel.INFO, "Running games on {} threads", scheduler.isVirtual() ? "virtual" : "platform");
+        SessionManager sessions = new SessionManager(10, TimeUnit.MINUTES, scheduler);
+        // Request threads only wait for the mailboxes, so they must not share the scheduler's platform pool
+        ExecutorService requests = scheduler.isVirtual()
+                ? GameScheduler.virtual().getExecutor()
+                : Executors.newFixedThreadPool(threads);
+        GameServer server = new GameServer(port, sessions, requests);
+        closeOnShutdown(server, sessions, scheduler);
+        server.start();
+    }
+
+    // Private methods:
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                route(exchange);
+            }
+            catch (NumberFormatException e) {
+                respond(exchange, 400, "Invalid number: " + e.getMessage() + "\n");
+            }
+            catch (CompletionException | CancellationException e) {
+                // A batch or a mailbox failed to play the move, answer rather than leave the client waiting
+                log.log(LogLevel.WARN, "Could not play a move: {}", e.getCause());
+                respond(exchange, 500, "Internal error\n");
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");   // "", "games", id, "moves"
+        String query = exchange.getRequestURI().getRawQuery();
+
+        // The context matches any path starting with /games, /gamesXYZ included
+        if (path.length < 2 || !path[1].equals("games")) {
+            respond(exchange, 404, "Unknown request\n");
+            return;
+        }
+
+        if (path.length == 2 && method.equals("POST")) {
+            int size = Integer.parseInt(getParameter(query, "size", "3"));
+            if (size < 3 || size > TicTacToe.MAX_SIZE) {
+                respond(exchange, 400, "Board size must be between 3 and " + TicTacToe.MAX_SIZE + "\n");
+                return;
+            }
+            Computer.Mode mode;
+            try {
+                mode = Computer.Mode.valueOf(getParameter(query, "bot", "blocker").toUpperCase());
+            }
+            catch (IllegalArgumentException e) {
+                respond(exchange, 400, "Computer must be blocker, guard, search or mcts\n");
+                return;
+            }
+            respond(exchange, 200, sessions.create(size, mode).getId() + "\n");
+            return;
+        }
+
+        if (path.length < 3) {
+            respond(exchange, 404, "Unknown request\n");
+            return;
+        }
+        long id = Long.parseLong(path[2]);
+
+        if (path.length == 4 && path[3].equals("moves") && method.equals("POST")) {
+            int row = Integer.parseInt(getParameter(query, "row", null));
+            int col = Integer.parseInt(getParameter(query, "col", null));
+            StringBuilder response = new StringBuilder();
+            if (batcher != null) {
+                MoveResult result = batcher.submit(id, row, col).join();
+                boolean found = result != null && sessions.withGame(id, game -> appendBoard(response, game.getState()));
+                respond(exchange, found ? 200 : 404, found ? result + "\n" + response : "Unknown game\n");
+                return;
+            }
+            boolean found = sessions.withGame(id, game -> {
+                response.append(game.play(row, col)).append('\n');
+                appendBoard(response, game.getState());
+            });
+            respond(exchange, found ? 200 : 404, found ? response.toString() : "Unknown game\n");
+            return;
+        }
+
+        if (path.length == 3 && method.equals("GET")) {
+            StringBuilder response = new StringBuilder();
+            boolean found = sessions.withGame(id, game -> {
+                response.append(game.getResult()).append('\n');
+                appendBoard(response, game.getState());
+            });
+            respond(exchange, found ? 200 : 404, found ? response.toString() : "Unknown game\n");
+            return;
+        }
+
+        if (path.length == 3 && method.equals("DELETE")) {
+            boolean found = sessions.remove(id);
+            respond(exchange, found ? 200 : 404, found ? "OK\n" : "Unknown game\n");
+            return;
+        }
+
+        respond(exchange, 404, "Unknown request\n");
+    }
+
+    // Helper functions:
+
+    // Stop the server of main() and close what it runs on (the scheduler may be null) when the JVM exits
+    private static void closeOnShutdown(GameServer server, SessionManager sessions, GameScheduler scheduler) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            sessions.close();
+            if (scheduler != null)
+                scheduler.close();
+        }, "server-shutdown"));
+    }
+
+    // Return the value of the given parameter in a query string like "row=1&col=2"
+    private static String getParameter(String query, String name, String fallback) {
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && pair.substring(0, eq).equals(name))
+                    return pair.substring(eq + 1);
+            }
+        }
+        if (fallback == null)
+            throw new NumberFormatException("missing parameter " + name);
+        return fallback;
+    }
+
+    // Write the board as one line per row
+    private static void appendBoard(StringBuilder out, Board board) {
+        int size = board.getSize();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int mark = board.get(row, col);
+                out.append(mark == Board.X ? 'x' : mark == Board.O ? 'o' : '.');
+            }
+            out.append('\n');
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
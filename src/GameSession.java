@@ -0,0 +1,44 @@
+// A game hosted by the SessionManager, together with the bookkeeping needed for idle eviction
+public class GameSession {
+
+    private final long id;
+    private final TicTacToe game;
+    private final SessionMailbox mailbox;   // Null if the moves of this game are serialized by locks instead
+    private volatile long last_access;      // System.nanoTime() of the last lookup or move
+
+    public GameSession(long id, TicTacToe game) {
+        this(id, game, null);
+    }
+
+    public GameSession(long id, TicTacToe game, SessionMailbox mailbox) {
+        this.id = id;
+        this.game = game;
+        this.mailbox = mailbox;
+        touch();
+    }
+
+    // Getter method
+    public long getId() {
+        return id;
+    }
+
+    // Getter method
+    public TicTacToe getGame() {
+        return game;
+    }
+
+    // Getter method
+    public SessionMailbox getMailbox() {
+        return mailbox;
+    }
+
+    // Getter method
+    public long getLastAccess() {
+        return last_access;
+    }
+
+    // Mark the session as used just now
+    public void touch() {
+        last_access = System.nanoTime();
+    }
+}
@@ -0,0 +1,59 @@
+// An immutable copy of the position of a game, taken with TicTacToe.snapshot(). It holds a private copy of the
+// board and a few numbers; up to 8x8 that copy is two longs, larger boards copy their bitsets or marked cells. So a
+// snapshot can be handed to other threads (e.g. a bot thinking while the game goes on) without any locking. It is
+// a BoardView, so it has no methods that could change its cells; toBoard() returns a copy that can be played on.
+public final class GameSnapshot implements BoardView {
+
+    private final Board board;              // Never changed after the copy
+    private final MoveResult result;
+    private final int moves;                // Number of marks made in the game so far
+    private final long hash;                // Plain Zobrist hash of the position, see PositionKey
+
+    // Constructor, the board must be a copy nobody else changes
+    public GameSnapshot(Board board, MoveResult result, int moves, long hash) {
+        this.board = board;
+        this.result = result;
+        this.moves = moves;
+        this.hash = hash;
+    }
+
+    @Override
+    public int getSize() {
+        return board.getSize();
+    }
+
+    @Override
+    public int get(int cell) {
+        return board.get(cell);
+    }
+
+    @Override
+    public int getCount() {
+        return board.getCount();
+    }
+
+    // Return a new board with the position of the snapshot, which the caller may change
+    public Board toBoard() {
+        return board.copy();
+    }
+
+    // Getter method
+    public MoveResult getResult() {
+        return result;
+    }
+
+    // Getter method
+    public int getMoveCount() {
+        return moves;
+    }
+
+    // Getter method
+    public long getHash() {
+        return hash;
+    }
+
+    // The player whose turn it is, when X and O take turns starting with X
+    public int getPlayerToMove() {
+        return moves % 2 == 0 ? Board.X : Board.O;
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// A named distribution of durations in nanoseconds in the Metrics registry, with log-linear buckets in the style
+// of an HDR histogram: every power of two is split into 16 buckets, so a value is off by at most 1/16 of itself,
+// from single nanoseconds up to 2^40 ns (about 18 minutes) in 608 buckets. Larger values land in the last bucket.
+// Recording takes no lock: the buckets are striped by thread over a few AtomicLongArrays, and the sum and maximum
+// are kept in a LongAdder and a LongAccumulator. Reading merges the stripes, see getSnapshot().
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+    private static final int STRIPE_BITS = 3;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final String name;
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram(String name) {
+        this.name = name;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    // Getter method
+    public String getName() {
+        return name;
+    }
+
+    // Add one duration in nanoseconds
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L >>> (64 - STRIPE_BITS));
+        stripes[stripe].incrementAndGet(bucketOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    // Add the time since start, a System.nanoTime() from Metrics.startTimer(), unless that is 0 as the call was
+    // not sampled
+    public void recordSince(long start) {
+        if (start != 0)
+            record(System.nanoTime() - start);
+    }
+
+    // The counts of all buckets and the sum and maximum as of now. Values recorded while this runs may be missing
+    // from some of them
+    public Snapshot getSnapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts, sum.sum(), max.get());
+    }
+
+    // Helper functions:
+
+    // Values below 16 have a bucket each, then bucket (exponent - 3) * 16 + the next 4 bits after the top one
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // The largest value that falls into a bucket
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+
+    // The merged state of a histogram at one point in time
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            this.sum = sum;
+            this.max = max;
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            count = total;
+        }
+
+        // Getter method
+        public long getCount() {
+            return count;
+        }
+
+        // Getter method
+        public long getSum() {
+            return sum;
+        }
+
+        // Getter method
+        public long getMax() {
+            return max;
+        }
+
+        public long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        // The value below which the given fraction (e.g. 0.99) of the recorded values lie, as the upper end of
+        // its bucket but never more than the maximum. 0 if nothing was recorded
+        public long getPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, target))
+                    return Math.min(highestOf(i), max);
+            }
+            return 0;
+        }
+    }
+}
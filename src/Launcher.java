@@ -1,7 +1,34 @@
 import javax.swing.*;
+import java.util.Arrays;
 
 public class Launcher {
-    public static void main(String[] args) {
+    private static final String USAGE = "Usage: java -jar TicTacToe.jar [--server [port] [platform|virtual|batched]"
+            + " | --simulate [options] | --tournament [options]]";
+
+    // Start the GUI, the game server when run with "--server [port] [platform|virtual|batched]", the headless
+    // Simulator when run with "--simulate [options]", or a Tournament between computers with "--tournament [options]".
+    // Anything else is rejected rather than ignored.
+    // The metrics are readable through JMX, and on http://localhost:<port>/metrics when the system property
+    // tictactoe.metrics.port is set
+    public static void main(String[] args) throws Exception {
+        Metrics.registerMBean();
+        Integer metrics_port = Integer.getInteger("tictactoe.metrics.port");
+        if (metrics_port != null)
+            Metrics.serve(metrics_port);
+        if (args.length > 0 && args[0].equals("--server")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            Simulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--tournament")) {
+            Tournament.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0)
+            throw new RuntimeException("Unknown option " + args[0] + ". " + USAGE);
         SwingUtilities.invokeLater(GUI::new);
     }
 }
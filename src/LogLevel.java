@@ -0,0 +1,10 @@
+// Levels of log messages, from the most detailed to the most severe. A Logger set to a level drops all messages
+// below it, OFF drops everything.
+public enum LogLevel {
+    TRACE, DEBUG, INFO, WARN, ERROR, OFF;
+
+    // Parse a level name in any case, e.g. from a system property
+    public static LogLevel of(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// Where the messages of all Loggers go. A message is handed over as its parts: the message template, in which
+// every "{}" is replaced by the next of up to three numeric arguments, is only turned into text by the sink, so a
+// sink that formats on another thread (AsyncLogSink) keeps that work off the thread that logs.
+public interface LogSink {
+
+    DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // Take one message. count is how many of a, b and c are used by the template
+    void append(long time, LogLevel level, String component, String template, int count, long a, long b, long c);
+
+    // Write out everything taken so far
+    default void flush() {
+    }
+
+    // A sink writing every message right away on the calling thread
+    static LogSink direct(PrintStream out) {
+        return (time, level, component, template, count, a, b, c) -> {
+            StringBuilder line = new StringBuilder(64);
+            format(line, time, level, component, template, count, a, b, c);
+            out.print(line);
+        };
+    }
+
+    // Append one message as a line of text: time, level, component and the filled in template
+    static void format(StringBuilder line, long time, LogLevel level, String component, String template, int count,
+                       long a, long b, long c) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(time), line);
+        line.append(' ').append(level).append(' ').append(component).append(": ");
+        int from = 0;
+        for (int arg = 0; arg < count; arg++) {
+            int at = template.indexOf("{}", from);
+            if (at < 0)
+                break;
+            line.append(template, from, at).append(arg == 0 ? a : arg == 1 ? b : c);
+            from = at + 2;
+        }
+        line.append(template, from, template.length()).append(System.lineSeparator());
+    }
+}
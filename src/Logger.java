@@ -0,0 +1,164 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+// A named log of one component of the game (e.g. "game", "computer", "gui"), writing to the shared LogSink.
+// Every component has its own level: messages below it are dropped right at the call, before any text exists.
+// The templates are constants and the arguments are numbers, so a disabled message costs a single comparison
+// and an enabled one is still only handed to the sink as its parts. Rare messages about files or errors can take
+// text arguments instead, which are put into the template on the calling thread. Other messages that need more
+// than that are built behind isEnabled().
+//
+// Levels come from the system properties tictactoe.log.<component> (e.g. -Dtictactoe.log.game=debug), then
+// tictactoe.log.level for all components, and are INFO otherwise. They can be changed at runtime with
+// setLevel() and setDefaultLevel(). By default messages go to an AsyncLogSink on standard output.
+public final class Logger {
+
+    private static final String PROPERTY = "tictactoe.log.";
+    private static final ConcurrentHashMap<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static volatile LogLevel default_level = levelOf("level", LogLevel.INFO);
+    private static volatile LogSink sink;
+
+    private final String component;
+    private volatile LogLevel explicit;     // Level set for this component only, null to follow the default
+    private volatile int threshold;         // Ordinal of the effective level
+
+    private Logger(String component) {
+        this.component = component;
+        explicit = levelOf(component, null);
+        threshold = getLevel().ordinal();
+    }
+
+    // Return the logger of the given component, creating it on first use
+    public static Logger get(String component) {
+        return loggers.computeIfAbsent(component, Logger::new);
+    }
+
+    // Set the level of all components that don't have their own
+    public static void setDefaultLevel(LogLevel level) {
+        default_level = level;
+        for (Logger logger : loggers.values()) {
+            logger.threshold = logger.getLevel().ordinal();
+        }
+    }
+
+    // Set the level of one component, or make it follow the default level again with null
+    public static void setLevel(String component, LogLevel level) {
+        Logger logger = get(component);
+        logger.explicit = level;
+        logger.threshold = logger.getLevel().ordinal();
+    }
+
+    // Send the messages of all components to the given sink from now on
+    public static void setSink(LogSink sink) {
+        Logger.sink = sink;
+    }
+
+    // Return the sink all messages go to, starting the default one on first use
+    public static LogSink getSink() {
+        LogSink current = sink;
+        if (current == null) {
+            synchronized (Logger.class) {
+                if (sink == null) {
+                    AsyncLogSink async = new AsyncLogSink(System.out, 8192);
+                    Runtime.getRuntime().addShutdownHook(new Thread(async::close, "log-flush"));
+                    sink = async;
+                }
+                current = sink;
+            }
+        }
+        return current;
+    }
+
+    // Getter method
+    public String getComponent() {
+        return component;
+    }
+
+    // Getter method
+    public LogLevel getLevel() {
+        LogLevel level = explicit;
+        return level != null ? level : default_level;
+    }
+
+    // Whether messages of the given level are written. Only needed to guard messages built from more than a
+    // template and numbers
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold;
+    }
+
+    // Log a message. Every "{}" of the template is replaced by the next argument
+    public void log(LogLevel level, String template) {
+        if (level.ordinal() >= threshold)
+            getSink().append(System.currentTimeMillis(), level, component, template, 0, 0, 0, 0);
+    }
+
+    public void log(LogLevel level, String template, long a) {
+        if (level.ordinal() >= threshold)
+            getSink().append(System.currentTimeMillis(), level, component, template, 1, a, 0, 0);
+    }
+
+    public void log(LogLevel level, String template, long a, long b) {
+        if (level.ordinal() >= threshold)
+            getSink().append(System.currentTimeMillis(), level, component, template, 2, a, b, 0);
+    }
+
+    public void log(LogLevel level, String template, long a, long b, long c) {
+        if (level.ordinal() >= threshold)
+            getSink().append(System.currentTimeMillis(), level, component, template, 3, a, b, c);
+    }
+
+    // Log a message with text arguments, e.g. a file or an exception, each "{}" being replaced by the next one's
+    // toString(). Only for rare messages: unlike the numbers, the text is filled in on the calling thread
+    public void log(LogLevel level, String template, Object a) {
+        if (level.ordinal() >= threshold)
+            logText(level, template, 1, a, null);
+    }
+
+    public void log(LogLevel level, String template, Object a, Object b) {
+        if (level.ordinal() >= threshold)
+            logText(level, template, 2, a, b);
+    }
+
+    // Shorthands for the levels used the most:
+
+    public void info(String template) {
+        log(LogLevel.INFO, template);
+    }
+
+    public void warn(String template) {
+        log(LogLevel.WARN, template);
+    }
+
+    // Helper functions:
+
+    // The level in the system property tictactoe.log.<name>, or the given fallback if it is not set. A misspelt
+    // level must not keep every class that logs from loading, so it is reported on standard error and the
+    // messages are logged at INFO
+    private static LogLevel levelOf(String name, LogLevel fallback) {
+        String value = System.getProperty(PROPERTY + name);
+        if (value == null)
+            return fallback;
+        try {
+            return LogLevel.of(value);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level \"" + value + "\" in " + PROPERTY + name + ", using INFO");
+            return LogLevel.INFO;
+        }
+    }
+
+    // Private methods:
+
+    private void logText(LogLevel level, String template, int count, Object a, Object b) {
+        StringBuilder text = new StringBuilder(template.length() + 64);
+        int from = 0;
+        for (int arg = 0; arg < count; arg++) {
+            int at = template.indexOf("{}", from);
+            if (at < 0)
+                break;
+            text.append(template, from, at).append(arg == 0 ? a : b);
+            from = at + 2;
+        }
+        text.append(template, from, template.length());
+        getSink().append(System.currentTimeMillis(), level, component, text.toString(), 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,198 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Registry of the named Counters and LatencyHistograms of the game, e.g. "game.moves" or "computer.think_ns".
+// Metrics are created on first use and kept for the life of the JVM; the classes that update them keep them in
+// static fields, so the hot paths only pay for a LongAdder increment or a histogram bucket.
+//
+// Reading the clock costs about as much as a win check, so latencies are only measured for a sample of the calls:
+// startTimer() returns 0 for all but one in tictactoe.metrics.sample calls (a power of two, 64 by default; 1 times
+// every call, 0 none), and LatencyHistogram.recordSince() skips those. Counters always count every call.
+//
+// Everything can be read through JMX (the MBean "tictactoe:type=Metrics", see registerMBean()) or as plain text
+// (scrape(), served by the GameServer under /metrics or on its own by serve()).
+public final class Metrics {
+
+    private static final int SAMPLE = Integer.getInteger("tictactoe.metrics.sample", 64);
+    private static final int SAMPLE_MASK = SAMPLE <= 0 ? -1 : Integer.highestOneBit(SAMPLE) - 1;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String PREFIX = "tictactoe_";
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static boolean registered;
+
+    private Metrics() {
+    }
+
+    // Return the counter with the given name, creating it on first use
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    // Return the histogram with the given name, creating it on first use
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    // System.nanoTime() if this call is sampled for a latency histogram, otherwise 0
+    public static long startTimer() {
+        if (SAMPLE_MASK < 0 || (ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) != 0)
+            return 0;
+        long now = System.nanoTime();
+        return now != 0 ? now : 1;
+    }
+
+    // All metrics as text, one value per line sorted by name, in the Prometheus exposition format: counters as
+    // they are, histograms as a summary of the sampled calls with the percentiles, their sum and count, followed by
+    // a gauge <name>_max with the largest one, as a summary can't hold other samples
+    public static String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Counter counter : new TreeMap<>(counters).values()) {
+            String name = PREFIX + toMetricName(counter.getName());
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.get()).append('\n');
+        }
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values()) {
+            String name = PREFIX + toMetricName(histogram.getName());
+            LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double percentile : PERCENTILES) {
+                out.append(name).append("{quantile=\"").append(percentile).append("\"} ")
+                        .append(snapshot.getPercentile(percentile)).append('\n');
+            }
+            out.append(name).append("_sum ").append(snapshot.getSum()).append('\n');
+            out.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+            out.append("# TYPE ").append(name).append("_max gauge\n");
+            out.append(name).append("_max ").append(snapshot.getMax()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Register the metrics with the platform MBean server, once per JVM. Every counter is an attribute named like
+    // the counter, every histogram has attributes <name>.count, .mean, .max, .p50, .p90, .p99 and .p999
+    public static synchronized void registerMBean() {
+        if (registered)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(),
+                    new ObjectName("tictactoe:type=Metrics"));
+            registered = true;
+        }
+        catch (JMException e) {
+            Logger.get("server").log(LogLevel.WARN, "Could not register the metrics MBean: {}", e);
+        }
+    }
+
+    // Serve scrape() on http://localhost:<port>/metrics, for processes without a GameServer
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", Metrics::handle);
+        server.start();
+        return server;
+    }
+
+    // Answer a request for /metrics with scrape()
+    static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] bytes = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        }
+    }
+
+    // Helper functions:
+
+    private static String toMetricName(String name) {
+        return name.replace('.', '_').replace('-', '_');
+    }
+
+    // Attribute values of the MBean, by attribute name
+    private static Map<String, Long> attributes() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Counter counter : counters.values()) {
+            values.put(counter.getName(), counter.get());
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+            String name = histogram.getName();
+            values.put(name + ".count", snapshot.getCount());
+            values.put(name + ".mean", snapshot.getMean());
+            values.put(name + ".max", snapshot.getMax());
+            values.put(name + ".p50", snapshot.getPercentile(0.5));
+            values.put(name + ".p90", snapshot.getPercentile(0.9));
+            values.put(name + ".p99", snapshot.getPercentile(0.99));
+            values.put(name + ".p999", snapshot.getPercentile(0.999));
+        }
+        return values;
+    }
+
+    // Read-only MBean whose attributes are the metrics registered at the time they are listed
+    private static final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes().get(name);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Long> values = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                if (values.containsKey(name))
+                    list.add(new Attribute(name, values.get(name)));
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("No operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            for (String name : attributes().keySet()) {
+                infos.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Counters and latencies of the game",
+                    infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+        }
+    }
+}
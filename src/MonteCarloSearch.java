@@ -0,0 +1,468 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+// Monte Carlo tree search with UCT, used by the computer in MCTS mode. Unlike AlphaBetaSearch it works on boards
+// of any size, as it never looks at more than the candidate moves of the position:
+// - Boards up to 8x8: every blank cell is a candidate, and wins are checked with the WinChecker on the bitboards.
+// - Larger boards: only the blank cells within 2 steps of a mark are candidates, and wins are checked around the
+//   mark with WinChecker.isWinningAround, so the cost follows the number of marks rather than the board area.
+//
+// The tree is grown one batch at a time: the search selects a number of leaves one after the other, each
+// selection counting as a lost visit of the nodes on its path (virtual loss) so the next ones go elsewhere. Then
+// the random playouts of the whole batch are run, split across the workers on a ForkJoinPool, and finally their
+// results are added to the tree. Only the playouts run in parallel, the tree itself is only touched by the
+// calling thread. Each worker plays out on its own copy of the board, marking and clearing cells, so a playout
+// allocates nothing.
+//
+// Before searching, a move that wins right away is played, or else one that keeps the opponent from doing so;
+// random playouts alone rarely see those on a large board within a few milliseconds.
+//
+// The tree is kept between moves: if the game went on with the move chosen last time and one reply to it, the
+// search continues from the subtree of that reply instead of starting over.
+public class MonteCarloSearch {
+
+    private static final int ONGOING = -1;          // Results of a node or playout, besides Board.X and Board.O
+    private static final int DRAWN = Board.EMPTY;
+    private static final double EXPLORATION = 1.4;  // UCT constant, scores being between 0 and 1
+    private static final int PLAYOUTS_PER_WORKER = 8;   // Leaves per worker and batch
+    private static final int MAX_PLAYOUT = 64;      // Random marks after which a playout counts as a draw
+
+    private final int size;
+    private final boolean small;            // Whether the board fits a bitboard
+    private final WinChecker wins;          // Only for boards that fit a bitboard
+    private long max_playouts = Long.MAX_VALUE;
+    private volatile boolean cancelled;     // Set from another thread to stop the searches, see setCancelled
+    private SplittableRandom random = new SplittableRandom();
+
+    private Worker[] workers;
+    private ForkJoinPool pool;              // Null when playing out single-threaded
+
+    // The tree, its position and the move chosen from it
+    private Node root;
+    private int[] root_moves = new int[0];  // Journal of the game at the root
+    private Board board;                    // The root position, marked and cleared while selecting
+    private int[] candidates;               // Candidate moves of the root position
+    private int candidate_count;
+
+    // Statistics of the last search
+    private long nodes;
+    private long playouts;
+    private long elapsed;                   // In nanoseconds
+
+    // Constructor, for the given board size
+    public MonteCarloSearch(int size) {
+        this.size = size;
+        small = Board.fitsBitBoard(size);
+        wins = small ? WinChecker.forSize(size) : null;
+        setParallelism(1);
+    }
+
+    // Set the number of workers running playouts in parallel. 1 plays out on the calling thread only
+    public void setParallelism(int parallelism) {
+        int count = Math.max(1, parallelism);
+        workers = new Worker[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new Worker(random.nextLong());
+        }
+        pool = count == 1 ? null : AlphaBetaSearch.sharedPool(count);
+    }
+
+    // Getter method
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    // Stop a search after this many playouts, even if there is time left
+    public void setMaxPlayouts(long max_playouts) {
+        this.max_playouts = max_playouts;
+    }
+
+    // While cancelled, searches stop after the current batch of playouts, the running one as well as later ones,
+    // and return the best move found so far. Not reset by the next search, see AlphaBetaSearch.setCancelled
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    // Reseed the random choices, to replay searches deterministically (with a parallelism of 1)
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+        for (Worker worker : workers) {
+            worker.random = new SplittableRandom(random.nextLong());
+        }
+    }
+
+    // Return the best cell for the given player to mark on the board, searching for about the given amount of
+    // nanoseconds or until the maximum number of playouts is reached. The journal holds the moves that led to
+    // the position, it is used to find the marks on large boards and to reuse the tree of the last search.
+    // The board must have at least one blank spot
+    public int bestMove(Board position, MoveJournal journal, int player, long time_budget) {
+        long start = System.nanoTime();
+        long deadline = start + time_budget;
+        nodes = 0;
+        playouts = 0;
+        setRoot(position, journal, player);
+        for (Worker worker : workers) {
+            worker.scratch = null;
+            worker.playouts = 0;
+        }
+
+        // Decisive moves first: a win right away, or else the only spot keeping the opponent from winning
+        int decisive = -1;
+        for (int i = 0; i < candidate_count; i++) {
+            if (isWinning(board, player, candidates[i])) {
+                decisive = candidates[i];
+                break;
+            }
+            if (decisive < 0 && isWinning(board, Board.opponent(player), candidates[i]))
+                decisive = candidates[i];
+        }
+        if (decisive >= 0) {
+            elapsed = System.nanoTime() - start;
+            return decisive;
+        }
+
+        int batch = workers.length * PLAYOUTS_PER_WORKER;
+        Node[] leaves = new Node[batch];
+        int[][] paths = new int[batch][candidate_count + 1];
+        int[] lengths = new int[batch];
+        int[] results = new int[batch];
+        long done = 0;
+        do {
+            int count = (int) Math.min(batch, max_playouts - done);
+            for (int i = 0; i < count; i++) {
+                leaves[i] = select(paths[i], lengths, i);
+            }
+            playOut(leaves, paths, lengths, results, count);
+            for (int i = 0; i < count; i++) {
+                backPropagate(leaves[i], results[i]);
+            }
+            done += count;
+        } while (done < max_playouts && System.nanoTime() < deadline && root.result == ONGOING && !cancelled);
+        elapsed = System.nanoTime() - start;
+        for (Worker worker : workers) {
+            playouts += worker.playouts;
+        }
+
+        Node best = null;
+        for (int i = 0; i < root.child_count; i++) {
+            Node child = root.children[i];
+            if (best == null || child.visits > best.visits)
+                best = child;
+        }
+        return best != null ? best.move : candidates[random.nextInt(candidate_count)];
+    }
+
+    // Number of tree nodes created by the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Number of random playouts run by the last search
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    // How long the last search took, in nanoseconds
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsed == 0 ? 0 : nodes * 1_000_000_000L / elapsed;
+    }
+
+    public long getPlayoutsPerSecond() {
+        return elapsed == 0 ? 0 : playouts * 1_000_000_000L / elapsed;
+    }
+
+    // Private methods:
+
+    // Continue from the subtree of the last search if the game went on from its root with the chosen move and a
+    // reply, otherwise start a new tree. On large boards new candidates around the reply would be missing from
+    // the kept subtree, so it is only kept if the reply didn't add any
+    private void setRoot(Board position, MoveJournal journal, int player) {
+        int marks = journal.size();
+        int old_count = candidate_count;
+        board = position.copy();
+        findCandidates(journal);
+
+        Node next = null;
+        if (root != null && marks == root_moves.length + 2 && candidate_count == old_count - 2
+                && isContinuation(journal)) {
+            Node chosen = root.find(journal.getCell(marks - 2));
+            next = chosen != null ? chosen.find(journal.getCell(marks - 1)) : null;
+        }
+        if (next == null || next.player == player) {
+            next = new Node(null, -1, Board.opponent(player));
+            nodes++;
+        }
+        next.parent = null;
+        root = next;
+        root_moves = new int[marks];
+        for (int i = 0; i < marks; i++) {
+            root_moves[i] = journal.get(i);
+        }
+    }
+
+    // Whether the journal starts with the moves of the last root
+    private boolean isContinuation(MoveJournal journal) {
+        for (int i = 0; i < root_moves.length; i++) {
+            if (journal.get(i) != root_moves[i])
+                return false;
+        }
+        return true;
+    }
+
+    // Collect the candidate moves of the root position: every blank cell of a small board, the blank cells
+    // within 2 steps of a mark of a large one
+    private void findCandidates(MoveJournal journal) {
+        if (small) {
+            candidates = new int[size * size];
+            candidate_count = 0;
+            for (int cell = 0; cell < size * size; cell++) {
+                if (board.get(cell) == Board.EMPTY)
+                    candidates[candidate_count++] = cell;
+            }
+            return;
+        }
+
+        // The square around a mark, walked in the Neighborhood: down the column, then along each row
+        Neighborhood neighborhood = Neighborhood.forSize(size);
+        int radius = Neighborhood.CANDIDATE_RADIUS;
+        int[] near = new int[journal.size() * (2 * radius + 1) * (2 * radius + 1)];
+        int count = 0;
+        for (int i = 0; i < journal.size(); i++) {
+            for (int dr = -radius; dr <= radius; dr++) {
+                int start = neighborhood.get(journal.getCell(i), Neighborhood.VERTICAL, dr);
+                for (int dc = -radius; dc <= radius && start >= 0; dc++) {
+                    int cell = neighborhood.get(start, Neighborhood.HORIZONTAL, dc);
+                    if (cell >= 0 && board.get(cell) == Board.EMPTY)
+                        near[count++] = cell;
+                }
+            }
+        }
+        Arrays.sort(near, 0, count);
+        candidates = new int[Math.max(count, 1)];
+        candidate_count = 0;
+        for (int i = 0; i < count; i++) {
+            if (candidate_count == 0 || candidates[candidate_count - 1] != near[i])
+                candidates[candidate_count++] = near[i];
+        }
+        if (candidate_count == 0)           // An empty board, any cell will do
+            candidates[candidate_count++] = (size / 2) * size + size / 2;
+    }
+
+    // Walk down from the root by UCT to a node that still has untried moves, expand one of them and return the
+    // new child (or the terminal node reached). The moves on the way are written to path, their number to
+    // lengths[index]. Every node on the path gets a visit right away, the virtual loss until its result is known
+    private Node select(int[] path, int[] lengths, int index) {
+        Node node = root;
+        int length = 0;
+        while (node.result == ONGOING) {
+            if (node.untried == null)
+                node.initUntried();
+            if (node.untried_count > 0) {
+                int k = random.nextInt(node.untried_count);
+                int move = node.untried[k];
+                node.untried[k] = node.untried[--node.untried_count];
+                Node child = node.add(move);
+                nodes++;
+                board.set(move, child.player);
+                path[length++] = move;
+                if (isWinning(board, child.player, move))
+                    child.result = child.player;
+                else if (length == candidate_count)
+                    child.result = DRAWN;
+                node = child;
+                break;
+            }
+            if (node.child_count == 0) {    // No candidate left
+                node.result = DRAWN;
+                break;
+            }
+            node = node.selectChild();
+            board.set(node.move, node.player);
+            path[length++] = node.move;
+        }
+        for (int i = 0; i < length; i++) {
+            board.clear(path[i]);
+        }
+        lengths[index] = length;
+        for (Node n = node; n != null; n = n.parent) {
+            n.visits++;
+        }
+        return node;
+    }
+
+    // Set the results of the leaves: their own result if the game is over there, otherwise that of a random
+    // playout from them
+    private void playOut(Node[] leaves, int[][] paths, int[] lengths, int[] results, int count) {
+        if (pool == null) {
+            for (int i = 0; i < count; i++) {
+                results[i] = workers[0].playOut(leaves[i], paths[i], lengths[i]);
+            }
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(workers.length);
+        for (int w = 0; w < workers.length; w++) {
+            Worker worker = workers[w];
+            int first = w;
+            tasks.add(() -> {
+                for (int i = first; i < count; i += workers.length) {
+                    results[i] = worker.playOut(leaves[i], paths[i], lengths[i]);
+                }
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+    }
+
+    // Add the result of a playout to the nodes from the leaf up to the root, which already counted the visit
+    private void backPropagate(Node leaf, int result) {
+        for (Node node = leaf; node != null; node = node.parent) {
+            if (result == node.player)
+                node.score += 2;
+            else if (result == DRAWN)
+                node.score += 1;
+        }
+    }
+
+    // Whether the player wins by marking the cell, whether the cell is marked already or still blank
+    private boolean isWinning(Board position, int player, int cell) {
+        if (small) {
+            BitBoard bits = (BitBoard) position;
+            return wins.isWinning(bits.getBits(player) | 1L << cell, bits.getBits(Board.opponent(player)), cell);
+        }
+        return WinChecker.isWinningAround(position, player, cell);
+    }
+
+    // A position of the tree, reached by player marking move
+    private final class Node {
+
+        private Node parent;
+        private final int move;             // -1 at the root
+        private final int player;
+        private Node[] children = new Node[4];
+        private int child_count;
+        private int[] untried;              // Candidates not expanded yet, null until first needed
+        private int untried_count;
+        private int visits;
+        private long score;                 // 2 per win and 1 per draw of player, over all visits
+        private int result = ONGOING;
+
+        private Node(Node parent, int move, int player) {
+            this.parent = parent;
+            this.move = move;
+            this.player = player;
+        }
+
+        // The untried moves are the root candidates still blank in the position of the node, which is on the
+        // board while selecting
+        private void initUntried() {
+            untried = new int[candidate_count];
+            for (int i = 0; i < candidate_count; i++) {
+                if (board.get(candidates[i]) == Board.EMPTY)
+                    untried[untried_count++] = candidates[i];
+            }
+        }
+
+        private Node add(int move) {
+            if (child_count == children.length)
+                children = Arrays.copyOf(children, child_count * 2);
+            Node child = new Node(this, move, Board.opponent(player));
+            children[child_count++] = child;
+            return child;
+        }
+
+        private Node find(int move) {
+            for (int i = 0; i < child_count; i++) {
+                if (children[i].move == move)
+                    return children[i];
+            }
+            return null;
+        }
+
+        // The child with the highest upper confidence bound. A child that wins is always taken
+        private Node selectChild() {
+            double log_visits = Math.log(visits);
+            Node best = null;
+            double best_value = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < child_count; i++) {
+                Node child = children[i];
+                if (child.result == child.player)
+                    return child;
+                double value = child.score / (2.0 * child.visits)
+                        + EXPLORATION * Math.sqrt(log_visits / child.visits);
+                if (value > best_value) {
+                    best_value = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    // The playout state of one thread: its own copy of the root position, random numbers and move list
+    private final class Worker {
+
+        private SplittableRandom random;
+        private Board scratch;              // Copy of the root position, made by the worker on its first playout
+        private long playouts;
+        private int[] moves = new int[0];
+        private int[] marked = new int[0];
+
+        private Worker(long seed) {
+            random = new SplittableRandom(seed);
+        }
+
+        // Mark the path to the leaf and then random candidates, alternating players, until someone wins, the
+        // candidates run out or MAX_PLAYOUT marks were made. Returns the winner, or DRAWN
+        private int playOut(Node leaf, int[] path, int length) {
+            if (leaf.result != ONGOING)
+                return leaf.result;
+            if (scratch == null)
+                scratch = board.copy();
+            if (moves.length < candidate_count) {
+                moves = new int[candidate_count];
+                marked = new int[candidate_count + 1];
+            }
+            playouts++;
+
+            int count = 0;
+            int player = root.player;
+            for (int i = 0; i < length; i++) {
+                player = Board.opponent(player);
+                scratch.set(path[i], player);
+                marked[count++] = path[i];
+            }
+
+            System.arraycopy(candidates, 0, moves, 0, candidate_count);
+            int left = candidate_count;
+            int result = DRAWN;
+            int plies = 0;
+            while (left > 0 && plies < MAX_PLAYOUT) {
+                int k = random.nextInt(left);
+                int move = moves[k];
+                moves[k] = moves[--left];
+                if (scratch.get(move) != Board.EMPTY)
+                    continue;
+                player = Board.opponent(player);
+                scratch.set(move, player);
+                marked[count++] = move;
+                plies++;
+                if (isWinning(scratch, player, move)) {
+                    result = player;
+                    break;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                scratch.clear(marked[i]);
+            }
+            return result;
+        }
+    }
+}
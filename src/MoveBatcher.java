@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Collects the moves submitted by many threads, e.g. the request threads of the GameServer, and plays them in
+// batches with SessionManager.playAll, so the computer's replies of all waiting games are computed in one
+// BotBatch pass. There is no timer: a single dispatcher thread takes whatever has been submitted while it played
+// the previous batch (up to a maximum), so a lone move is played right away and batches grow with the load.
+public final class MoveBatcher implements AutoCloseable {
+
+    private static final Logger log = Logger.get("server");
+
+    private final SessionManager sessions;
+    private final BotBatch batch;
+    private final int max_batch;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+
+    // Statistics
+    private volatile long batches;
+    private volatile long moves;
+
+    // Constructor, replies are computed on up to parallelism threads, at most max_batch moves at a time
+    public MoveBatcher(SessionManager sessions, int parallelism, int max_batch) {
+        this.sessions = sessions;
+        this.max_batch = max_batch;
+        batch = new BotBatch(parallelism);
+        dispatcher = new Thread(this::dispatch, "move-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Queue a move of the player in the given game. The future completes with the result after the computer's
+    // reply, as SessionManager.play, or with null if there is no such game
+    public CompletableFuture<MoveResult> submit(long id, int row, int col) {
+        Request request = new Request(id, row, col);
+        queue.add(request);
+        return request.result;
+    }
+
+    // Average number of moves per batch so far
+    public double getAverageBatch() {
+        long count = batches;
+        return count == 0 ? 0 : (double) moves / count;
+    }
+
+    @Override
+    public void close() {
+        dispatcher.interrupt();
+    }
+
+    // Private methods:
+
+    private void dispatch() {
+        List<Request> requests = new ArrayList<>(max_batch);
+        long[] ids = new long[max_batch];
+        int[] rows = new int[max_batch];
+        int[] cols = new int[max_batch];
+        MoveResult[] results = new MoveResult[max_batch];
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                requests.add(queue.take());
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(requests, max_batch - 1);
+            int count = requests.size();
+            for (int i = 0; i < count; i++) {
+                Request request = requests.get(i);
+                ids[i] = request.id;
+                rows[i] = request.row;
+                cols[i] = request.col;
+            }
+
+            try {
+                sessions.playAll(ids, rows, cols, count, results, batch);
+                for (int i = 0; i < count; i++) {
+                    requests.get(i).result.complete(results[i]);
+                }
+            }
+            catch (RuntimeException e) {
+                log.log(LogLevel.WARN, "Batch of {} moves failed: {}", count, e);
+                for (Request request : requests) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+            batches++;
+            moves += count;
+            requests.clear();
+        }
+
+        // Nobody is going to play the moves left in the queue
+        for (Request request = queue.poll(); request != null; request = queue.poll()) {
+            request.result.cancel(false);
+        }
+    }
+
+    // A submitted move and where its result goes
+    private static final class Request {
+        final long id;
+        final int row;
+        final int col;
+        final CompletableFuture<MoveResult> result = new CompletableFuture<>();
+
+        Request(long id, int row, int col) {
+            this.id = id;
+            this.row = row;
+            this.col = col;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+// The moves of one game in the order they were played, appended by TicTacToe on every mark.
+// Each move is kept as one int, (cell << 1) | (1 if O marked it), which is also how GameRecordWriter stores it.
+// Undone moves stay behind the end of the journal, so they can be redone, until a new move is appended.
+public final class MoveJournal {
+
+    private int[] moves = new int[16];
+    private int count;                  // Moves played
+    private int end;                    // Moves played plus the undone moves that can be redone
+
+    // Add a move to the end of the journal, dropping the moves that could be redone
+    public void append(int player, int cell) {
+        if (count == moves.length)
+            moves = Arrays.copyOf(moves, count * 2);
+        moves[count++] = encode(player, cell);
+        end = count;
+    }
+
+    // Remove the last move and return it, or -1 if there is none
+    public int undo() {
+        return count == 0 ? -1 : moves[--count];
+    }
+
+    // Put the last undone move back and return it, or -1 if there is none
+    public int redo() {
+        return count == end ? -1 : moves[count++];
+    }
+
+    // Whether there is an undone move to redo
+    public boolean canRedo() {
+        return count < end;
+    }
+
+    // Number of moves played
+    public int size() {
+        return count;
+    }
+
+    // Cell of the i-th move
+    public int getCell(int i) {
+        return moves[i] >>> 1;
+    }
+
+    // Player (Board.X or Board.O) of the i-th move
+    public int getPlayer(int i) {
+        return decodePlayer(moves[i]);
+    }
+
+    // The i-th move as (cell << 1) | (1 if O)
+    public int get(int i) {
+        return moves[i];
+    }
+
+    // Helper functions to pack a move into an int and back:
+
+    public static int encode(int player, int cell) {
+        return cell << 1 | (player == Board.O ? 1 : 0);
+    }
+
+    public static int decodeCell(int move) {
+        return move >>> 1;
+    }
+
+    public static int decodePlayer(int move) {
+        return (move & 1) == 0 ? Board.X : Board.O;
+    }
+}
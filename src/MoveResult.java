@@ -0,0 +1,18 @@
+// Outcome of a move, returned by the headless game API instead of throwing exceptions
+public enum MoveResult {
+    ONGOING,        // The move was made and the game goes on
+    X_WON,
+    O_WON,
+    DRAW,           // The board is full and no one won
+    ILLEGAL;        // The move was rejected: spot already marked, outside the board or the game is over
+
+    // Return the winning result for the given player
+    public static MoveResult won(int player) {
+        return player == Board.X ? X_WON : O_WON;
+    }
+
+    // Check whether the game is over after this result
+    public boolean isFinished() {
+        return this == X_WON || this == O_WON || this == DRAW;
+    }
+}
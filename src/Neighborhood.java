@@ -0,0 +1,123 @@
+// The cells around every cell of one board size, looked up instead of computed: for each of the four directions of
+// a line (horizontal, vertical, diagonal, anti-diagonal) the index of the cell k steps away, for k up to RADIUS on
+// either side, or -1 where that is off the board. On boards that fit a bitboard the same is also kept as bitboards
+// of the cells within CANDIDATE_RADIUS steps along each line, so candidate moves are a few ANDs with the marks.
+// A neighborhood never changes, so one is built per board size on first use and shared by all games of that size.
+// The tables are kept in the TableCache between runs.
+public final class Neighborhood {
+
+    public static final int RADIUS = 4;             // Steps covered by the tables, as far as a win can reach
+    public static final int CANDIDATE_RADIUS = 2;   // Steps around a mark within which the computers look for moves
+    public static final int HORIZONTAL = 0;         // The directions
+    public static final int VERTICAL = 1;
+    public static final int DIAGONAL = 2;
+    public static final int ANTI_DIAGONAL = 3;
+    public static final int DIRECTIONS = 4;
+    private static final int SPAN = 2 * RADIUS + 1;
+    private static final int[][] STEPS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};     // (dr, dc) of every direction
+
+    private static final Neighborhood[] neighborhoods = new Neighborhood[TicTacToe.MAX_SIZE + 1];
+
+    private final int size;
+    private final int[] cells;          // [(cell * DIRECTIONS + direction) * SPAN + RADIUS + k], -1 off the board
+    private final long[] windows;       // [cell * DIRECTIONS + direction], null unless the board fits a bitboard
+
+    private Neighborhood(int size) {
+        this.size = size;
+        cells = TableCache.ints("neighborhood", size, size * size * DIRECTIONS * SPAN, () -> buildCells(size));
+        windows = Board.fitsBitBoard(size) ? buildWindows(size, cells) : null;
+    }
+
+    // Return the shared neighborhood of the given board size, building it on first use. Only the first use of a
+    // size takes a lock: the tables are final fields, so a neighborhood read without one is still complete
+    public static Neighborhood forSize(int size) {
+        Neighborhood neighborhood = neighborhoods[size];
+        return neighborhood != null ? neighborhood : build(size);
+    }
+
+    private static synchronized Neighborhood build(int size) {
+        if (neighborhoods[size] == null)
+            neighborhoods[size] = new Neighborhood(size);
+        return neighborhoods[size];
+    }
+
+    // Getter method
+    public int getSize() {
+        return size;
+    }
+
+    // The cell k steps (-RADIUS to RADIUS) from the given one in the given direction, or -1 if that is off the board
+    public int get(int cell, int direction, int k) {
+        return cells[(cell * DIRECTIONS + direction) * SPAN + RADIUS + k];
+    }
+
+    // Bitboard of the cells within CANDIDATE_RADIUS steps of the given one in the given direction, itself included.
+    // Only for boards that fit a bitboard
+    public long getWindow(int cell, int direction) {
+        return windows[cell * DIRECTIONS + direction];
+    }
+
+    // The candidate moves around a mark of a board that fits a bitboard, the cell's windows that hold another mark
+    // of the given player (own being that player's bitboard), without the marked cells
+    public long candidates(int cell, long own, long marked) {
+        long others = own & ~(1L << cell);
+        long result = 0;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            long window = windows[cell * DIRECTIONS + d];
+            if ((window & others) != 0)
+                result |= window;
+        }
+        return result & ~marked;
+    }
+
+    // Same as above for a board of any size, writing the candidates to moves and returning their number. A cell can
+    // be in more than one direction's window only if it is the mark itself, so there are no duplicates
+    public int candidates(Board board, int cell, int player, int[] moves) {
+        int count = 0;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            int base = (cell * DIRECTIONS + d) * SPAN + RADIUS;
+            boolean near = false;
+            for (int k = -CANDIDATE_RADIUS; k <= CANDIDATE_RADIUS && !near; k++) {
+                near = k != 0 && cells[base + k] >= 0 && board.get(cells[base + k]) == player;
+            }
+            if (!near)
+                continue;
+            for (int k = -CANDIDATE_RADIUS; k <= CANDIDATE_RADIUS; k++) {
+                if (cells[base + k] >= 0 && board.get(cells[base + k]) == Board.EMPTY)
+                    moves[count++] = cells[base + k];
+            }
+        }
+        return count;
+    }
+
+    // Helper functions:
+
+    private static int[] buildCells(int size) {
+        int[] cells = new int[size * size * DIRECTIONS * SPAN];
+        for (int cell = 0; cell < size * size; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            for (int d = 0; d < DIRECTIONS; d++) {
+                int base = (cell * DIRECTIONS + d) * SPAN + RADIUS;
+                for (int k = -RADIUS; k <= RADIUS; k++) {
+                    int i = row + k * STEPS[d][0];
+                    int j = col + k * STEPS[d][1];
+                    cells[base + k] = 0 <= i && i < size && 0 <= j && j < size ? i * size + j : -1;
+                }
+            }
+        }
+        return cells;
+    }
+
+    private static long[] buildWindows(int size, int[] cells) {
+        long[] windows = new long[size * size * DIRECTIONS];
+        for (int i = 0; i < windows.length; i++) {
+            for (int k = -CANDIDATE_RADIUS; k <= CANDIDATE_RADIUS; k++) {
+                int cell = cells[i * SPAN + RADIUS + k];
+                if (cell >= 0)
+                    windows[i] |= 1L << cell;
+            }
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A solved table of best moves and outcomes for small boards, written by BookGenerator and memory-mapped when
+// first needed. Only the canonical position of every 8 symmetric ones is stored (see Symmetry).
+//
+// File layout, all numbers big endian:
+//   int  MAGIC, int VERSION, int size, int capacity (a power of two), int number of entries
+//   long slots[capacity]: an open addressing hash table with linear probing, 0 marks an empty slot
+// A slot holds (key << 8) | (move << 2) | outcome, with key = x << (size * size) | o of the canonical position,
+// move the best cell for the player to move in the canonical orientation and outcome one of WIN, DRAW or LOSS
+// for the player to move, when both sides play perfectly.
+public final class OpeningBook {
+
+    public static final int MAGIC = 0x54545442;    // "TTTB"
+    public static final int VERSION = 1;
+    public static final int HEADER = 20;            // Bytes before the slots
+
+    // Outcomes for the player to move
+    public static final int WIN  = 1;
+    public static final int DRAW = 2;
+    public static final int LOSS = 3;
+
+    private static final int MAX_SIZE = 4;          // Larger boards can't be solved completely
+    private static final OpeningBook[] books = new OpeningBook[MAX_SIZE + 1];
+    private static final boolean[] loaded = new boolean[MAX_SIZE + 1];
+    private static final Logger log = Logger.get("book");
+
+    private final int size;
+    private final int cells;
+    private final int mask;                 // capacity - 1
+    private final ByteBuffer slots;
+    private final Symmetry symmetry;
+
+    private OpeningBook(int size, int capacity, ByteBuffer slots) {
+        this.size = size;
+        this.cells = size * size;
+        this.mask = capacity - 1;
+        this.slots = slots;
+        this.symmetry = Symmetry.forSize(size);
+    }
+
+    // Return the book for the given board size, or null if there is none. The book is looked up once per size
+    // as book/book-<size>.bin, or in the directory given by the system property tictactoe.book.dir
+    public static synchronized OpeningBook forSize(int size) {
+        if (size > MAX_SIZE)
+            return null;
+        if (!loaded[size]) {
+            loaded[size] = true;
+            Path file = Path.of(System.getProperty("tictactoe.book.dir", "book"), fileName(size));
+            if (Files.isRegularFile(file)) {
+                try {
+                    books[size] = open(file, size);
+                }
+                catch (IOException | RuntimeException e) {
+                    log.log(LogLevel.WARN, "Could not load opening book {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        return books[size];
+    }
+
+    // Memory-map the given book file of the given board size. Throws if the file is not such a book, e.g. a stale
+    // file of another size, so a book is never used for the wrong board
+    public static OpeningBook open(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER)
+                throw new RuntimeException("Not an opening book");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new RuntimeException("Not an opening book of version " + VERSION);
+            if (buffer.getInt(8) != size)
+                throw new RuntimeException("Opening book of size " + buffer.getInt(8) + " instead of " + size);
+            int capacity = buffer.getInt(12);
+            if (Integer.bitCount(capacity) != 1 || buffer.capacity() != HEADER + 8L * capacity)
+                throw new RuntimeException("Corrupt opening book");
+            return new OpeningBook(size, capacity, buffer);
+        }
+    }
+
+    // Name of the book file of the given board size
+    public static String fileName(int size) {
+        return "book-" + size + ".bin";
+    }
+
+    // Getter method
+    public int getSize() {
+        return size;
+    }
+
+    // Return the best cell for the player to move, or -1 if the position is not in the book
+    public int bestMove(long x, long o) {
+        int s = symmetry.canonical(x, o);
+        long slot = find(symmetry.apply(s, x), symmetry.apply(s, o));
+        return slot == 0 ? -1 : symmetry.revert(s, (int) (slot >>> 2) & 0x3F);
+    }
+
+    // Return WIN, DRAW or LOSS for the player to move, or 0 if the position is not in the book
+    public int outcome(long x, long o) {
+        int s = symmetry.canonical(x, o);
+        long slot = find(symmetry.apply(s, x), symmetry.apply(s, o));
+        return (int) slot & 0x3;
+    }
+
+    // Hash a canonical key to its first slot. Shared with BookGenerator which builds the table
+    public static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    // Private methods:
+
+    // Return the slot of the given canonical position, or 0 if it is not in the book
+    private long find(long x, long o) {
+        long key = x << cells | o;
+        for (int index = hash(key) & mask; ; index = (index + 1) & mask) {
+            long slot = slots.getLong(HEADER + 8 * index);
+            if (slot == 0 || slot >>> 8 == key)
+                return slot;
+        }
+    }
+}
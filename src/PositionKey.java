@@ -0,0 +1,107 @@
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+// Zobrist hash of a position, kept up to date in O(1) per mark.
+// Besides the plain hash, the hash of each of the 8 symmetric images of the position (see Symmetry) is kept as
+// well, so the canonical hash, the smallest of them, is the same for all symmetric positions. Caches keyed by the
+// canonical hash therefore store rotations and reflections of a position only once. Marking a cell costs 8 XORs
+// with precomputed keys: the key of a cell under symmetry s is the plain key of the cell s moves it to.
+public final class PositionKey {
+
+    private static final HashMap<Integer, long[]> tables = new HashMap<>();
+
+    private final int cells;
+    private final long[] table;             // See tableFor()
+    private final long[] hashes = new long[Symmetry.COUNT];
+
+    // Constructor, for an empty board of the given size
+    public PositionKey(int size) {
+        cells = size * size;
+        table = tableFor(size);
+    }
+
+    // Constructor, for the position given by the bitboards of both players
+    public PositionKey(int size, long x, long o) {
+        this(size);
+        for (long bits = x; bits != 0; bits &= bits - 1) {
+            toggle(Board.X, Long.numberOfTrailingZeros(bits));
+        }
+        for (long bits = o; bits != 0; bits &= bits - 1) {
+            toggle(Board.O, Long.numberOfTrailingZeros(bits));
+        }
+    }
+
+    // Return the shared Zobrist keys of the given board size, building them (or loading them from the TableCache)
+    // on first use. The key of a cell under symmetry s for a player is at index(cells, s, player, cell)
+    public static synchronized long[] tableFor(int size) {
+        long[] table = tables.get(size);
+        if (table == null) {
+            table = TableCache.longs("keys", size, Symmetry.COUNT * 2 * size * size, () -> buildTable(size));
+            tables.put(size, table);
+        }
+        return table;
+    }
+
+    private static long[] buildTable(int size) {
+        int cells = size * size;
+        Symmetry symmetry = Symmetry.forSize(size);
+        SplittableRandom random = new SplittableRandom(0x5EED + size);
+        long[][] plain = new long[3][cells];
+        for (int cell = 0; cell < cells; cell++) {
+            plain[Board.X][cell] = random.nextLong();
+            plain[Board.O][cell] = random.nextLong();
+        }
+
+        long[] table = new long[Symmetry.COUNT * 2 * cells];
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            for (int cell = 0; cell < cells; cell++) {
+                table[index(cells, s, Board.X, cell)] = plain[Board.X][symmetry.apply(s, cell)];
+                table[index(cells, s, Board.O, cell)] = plain[Board.O][symmetry.apply(s, cell)];
+            }
+        }
+        return table;
+    }
+
+    // Position of a key in the table returned by tableFor()
+    public static int index(int cells, int s, int player, int cell) {
+        return (s * 2 + player - 1) * cells + cell;
+    }
+
+    // Mark the cell for the player, or remove the mark again if it is already there
+    public void toggle(int player, int cell) {
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            hashes[s] ^= table[index(cells, s, player, cell)];
+        }
+    }
+
+    // Plain Zobrist hash of the position
+    public long getHash() {
+        return hashes[0];
+    }
+
+    // Hash of the position under symmetry s
+    public long getHash(int s) {
+        return hashes[s];
+    }
+
+    // The smallest hash over all symmetric images of the position. Equal for all symmetric positions
+    public long getCanonicalHash() {
+        return hashes[getCanonicalSymmetry()];
+    }
+
+    // The symmetry that turns the position into the image with the canonical hash
+    public int getCanonicalSymmetry() {
+        return canonical(hashes, 0);
+    }
+
+    // Index of the smallest of the 8 hashes stored from the given offset of the array, minus the offset.
+    // Shared with the search, which keeps the hashes of every ply in one flat array
+    public static int canonical(long[] hashes, int offset) {
+        int best = 0;
+        for (int s = 1; s < Symmetry.COUNT; s++) {
+            if (hashes[offset + s] < hashes[offset + best])
+                best = s;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// An ordered mailbox for one game. Tasks are run one after another in submission order on the underlying
+// executor, but a game never occupies a thread while its mailbox is empty, and only one task of a game runs at a
+// time. That serializes the moves of a game without any lock, so a slow computer move only delays later moves
+// of the same game and never blocks other games.
+public class SessionMailbox implements Executor {
+
+    private static final int BATCH = 16;    // Tasks run per turn before yielding the thread to other games
+
+    private final Executor executor;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public SessionMailbox(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queue.add(task);
+        schedule();
+    }
+
+    // Private methods:
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            executor.execute(this::drain);
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = queue.poll()) != null; i++) {
+                task.run();
+            }
+        }
+        finally {
+            scheduled.set(false);
+            // A task may have been added after the last poll but before the flag was cleared
+            if (!queue.isEmpty())
+                schedule();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Hosts many games in one JVM, keyed by a numeric game ID.
+// The registry itself is a ConcurrentHashMap, so creating and looking up games never blocks other games.
+// Moves are serialized per game with a fixed array of striped locks instead of one monitor per game: a game
+// always maps to the same lock, so two moves on the same game never interleave, while moves on different
+// games only contend if they happen to share a stripe. Games that have not been touched for longer than the
+// idle timeout are evicted by a background sweeper.
+// When created with a GameScheduler, every game gets an ordered SessionMailbox on that scheduler instead: the
+// moves of a game, including the computer's reply, run one at a time on the scheduler's (virtual or platform)
+// threads, and the caller's thread only waits on a CompletableFuture.
+public class SessionManager implements AutoCloseable {
+
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong next_id = new AtomicLong(1);
+    private final ReentrantLock[] locks;
+    private final long idle_timeout;        // In nanoseconds
+    private final ScheduledExecutorService sweeper;
+    private final GameScheduler scheduler;  // Null if moves run on the caller's thread under the striped locks
+
+    // Constructor, sessions idle for longer than the given amount of time are evicted
+    public SessionManager(long idle_timeout, TimeUnit unit) {
+        this(idle_timeout, unit, DEFAULT_STRIPES);
+    }
+
+    // Constructor, the moves of every game are run through a mailbox on the given scheduler
+    public SessionManager(long idle_timeout, TimeUnit unit, GameScheduler scheduler) {
+        this(idle_timeout, unit, 1, scheduler);
+    }
+
+    // Constructor with the number of lock stripes, which is rounded up to a power of two
+    public SessionManager(long idle_timeout, TimeUnit unit, int stripes) {
+        this(idle_timeout, unit, stripes, null);
+    }
+
+    private SessionManager(long idle_timeout, TimeUnit unit, int stripes, GameScheduler scheduler) {
+        this.idle_timeout = unit.toNanos(idle_timeout);
+        this.scheduler = scheduler;
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, this.idle_timeout / 4);
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    // Create a new game of the given size and return its session
+    public GameSession create(int size) {
+        return create(size, Computer.Mode.BLOCKER);
+    }
+
+    // Create a new game of the given size, against the computer with the given strategy, and return its session
+    public GameSession create(int size, Computer.Mode mode) {
+        long id = next_id.getAndIncrement();
+        SessionMailbox mailbox = scheduler == null ? null : scheduler.newMailbox();
+        GameSession session = new GameSession(id, new TicTacToe(size, mode), mailbox);
+        sessions.put(id, session);
+        return session;
+    }
+
+    // Return the session with the given ID, or null if there is none (or it has been evicted)
+    public GameSession get(long id) {
+        GameSession session = sessions.get(id);
+        if (session != null)
+            session.touch();
+        return session;
+    }
+
+    // Let the player mark a spot in the given game and the computer reply
+    // Returns null if there is no such game
+    public MoveResult play(long id, int row, int col) {
+        GameSession session = get(id);
+        if (session == null)
+            return null;
+        if (session.getMailbox() != null)
+            return playAsync(session, row, col).join();
+
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return session.getGame().play(row, col);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // Same as above, but the move is queued and the result delivered through the returned future
+    // The future completes with null if there is no such game
+    public CompletableFuture<MoveResult> playAsync(long id, int row, int col) {
+        GameSession session = get(id);
+        if (session == null)
+            return CompletableFuture.completedFuture(null);
+        if (session.getMailbox() == null)
+            return CompletableFuture.completedFuture(play(id, row, col));
+        return playAsync(session, row, col);
+    }
+
+    // Let the players of many games mark a spot each, ids[i] being the game of the i-th move, and compute all the
+    // computer's replies in one BotBatch pass. results[i] is set to the result of the i-th move, as with play(),
+    // or null if there is no such game. The moves of a game that appears more than once are played in order, in
+    // one round of the batch each. Games with a mailbox are played one by one through it
+    public void playAll(long[] ids, int[] rows, int[] cols, int count, MoveResult[] results, BotBatch batch) {
+        GameSession[] games = new GameSession[count];
+        int[] pending = new int[count];
+        int pending_count = 0;
+        for (int i = 0; i < count; i++) {
+            GameSession session = get(ids[i]);
+            if (session == null || session.getMailbox() != null)
+                results[i] = session == null ? null : play(ids[i], rows[i], cols[i]);
+            else
+                pending[pending_count++] = i;
+            games[i] = session;
+        }
+
+        int[] round = new int[pending_count];
+        TicTacToe[] round_games = new TicTacToe[pending_count];
+        int[] round_rows = new int[pending_count];
+        int[] round_cols = new int[pending_count];
+        MoveResult[] round_results = new MoveResult[pending_count];
+        while (pending_count > 0) {
+            // A round takes the first move of every game still pending, the later ones wait for the next round
+            int round_count = 0;
+            int left = 0;
+            if (!hasDuplicates(ids, pending, pending_count)) {
+                System.arraycopy(pending, 0, round, 0, pending_count);
+                round_count = pending_count;
+            }
+            else {
+                Set<Long> in_round = new HashSet<>();
+                for (int p = 0; p < pending_count; p++) {
+                    int i = pending[p];
+                    if (in_round.add(ids[i]))
+                        round[round_count++] = i;
+                    else
+                        pending[left++] = i;
+                }
+            }
+            pending_count = left;
+
+            for (int r = 0; r < round_count; r++) {
+                round_games[r] = games[round[r]].getGame();
+                round_rows[r] = rows[round[r]];
+                round_cols[r] = cols[round[r]];
+            }
+            ReentrantLock[] held = lockAll(ids, round, round_count);
+            try {
+                batch.play(round_games, round_rows, round_cols, round_results, round_count);
+            }
+            finally {
+                for (int k = held.length - 1; k >= 0; k--) {
+                    held[k].unlock();
+                }
+            }
+            for (int r = 0; r < round_count; r++) {
+                results[round[r]] = round_results[r];
+            }
+        }
+    }
+
+    // Run the given action on the game once all previously submitted moves are done and while no other move
+    // runs on it, e.g. to read a consistent board
+    // Returns false if there is no such game
+    public boolean withGame(long id, Consumer<TicTacToe> action) {
+        GameSession session = get(id);
+        if (session == null)
+            return false;
+        if (session.getMailbox() != null) {
+            CompletableFuture.runAsync(() -> action.accept(session.getGame()), session.getMailbox()).join();
+            return true;
+        }
+
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            action.accept(session.getGame());
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // Remove the game with the given ID. Returns false if there was none
+    public boolean remove(long id) {
+        return sessions.remove(id) != null;
+    }
+
+    // Number of games currently hosted
+    public int size() {
+        return sessions.size();
+    }
+
+    // Remove all games that have been idle for longer than the idle timeout. Returns the number of evicted games
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        Iterator<GameSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getLastAccess() > idle_timeout) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        sessions.clear();
+    }
+
+    // Helper functions:
+
+    private CompletableFuture<MoveResult> playAsync(GameSession session, int row, int col) {
+        return CompletableFuture.supplyAsync(() -> session.getGame().play(row, col), session.getMailbox());
+    }
+
+    // Lock the stripes of the games of the given moves, each once and in the order of the stripes, so two
+    // threads locking several stripes at once can't deadlock. Returns the locks in the order they were taken
+    private ReentrantLock[] lockAll(long[] ids, int[] moves, int count) {
+        int[] stripes = new int[count];
+        for (int k = 0; k < count; k++) {
+            stripes[k] = stripeOf(ids[moves[k]]);
+        }
+        Arrays.sort(stripes);
+        int unique = 0;
+        for (int k = 0; k < count; k++) {
+            if (unique == 0 || stripes[unique - 1] != stripes[k])
+                stripes[unique++] = stripes[k];
+        }
+        ReentrantLock[] held = new ReentrantLock[unique];
+        for (int k = 0; k < unique; k++) {
+            held[k] = locks[stripes[k]];
+            held[k].lock();
+        }
+        return held;
+    }
+
+    // Whether a game has more than one of the given moves
+    private static boolean hasDuplicates(long[] ids, int[] moves, int count) {
+        long[] sorted = new long[count];
+        for (int k = 0; k < count; k++) {
+            sorted[k] = ids[moves[k]];
+        }
+        Arrays.sort(sorted);
+        for (int k = 1; k < count; k++) {
+            if (sorted[k] == sorted[k - 1])
+                return true;
+        }
+        return false;
+    }
+
+    // Return the stripe guarding the given game. The ID is mixed first since consecutive IDs are handed out
+    private ReentrantLock lockFor(long id) {
+        return locks[stripeOf(id)];
+    }
+
+    private int stripeOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (locks.length - 1);
+    }
+}
@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless self-play: plays many games of an X player against the computer on all cores, for load tests and to
+// analyse how the rules play out. Moves are not printed, only aggregate results are: progress with the games per
+// second while running, then per board size the win and draw rates and a histogram of the game lengths.
+//
+// Usage: java Simulator [--sizes 3,4,5] [--games N] [--seed S] [--threads T] [--x random|search]
+//                       [--o blocker|guard|search|mcts] [--budget ms] [--playouts N] [--parallelism N]
+//                       [--record directory]
+// --x is the X player: random blank spots (default), or an AlphaBetaSearch up to 8x8. --o is the strategy of the
+// computer, --budget the thinking time per move of both searches. --playouts caps the playouts per move of mcts, which
+// makes its games depend on the seed only. --parallelism is the number of threads each search uses per move (default
+// 1), on top of the --threads playing games. --record writes every game to a GameRecordWriter in the given directory.
+// The games are dealt out in chunks with their own random numbers derived from the seed, so the results only depend on
+// the seed, not on the number of threads (unless a search runs out of time).
+public class Simulator {
+
+    private static final String USAGE = "Usage: java Simulator [--sizes 3,4,5] [--games N] [--seed S] [--threads T]"
+            + " [--x random|search] [--o blocker|guard|search|mcts] [--budget ms] [--playouts N] [--parallelism N]"
+            + " [--record directory]";
+    private static final int CHUNK = 1024;                  // Games a worker takes at a time
+    private static final long REPORT_INTERVAL = 1000;       // Milliseconds between two progress lines
+
+    private final int size;
+    private final long games;
+    private final long seed;
+    private final boolean x_search;
+    private final Computer.Mode o_mode;
+    private final long budget;              // In milliseconds
+
+    private long playouts = Long.MAX_VALUE; // Playouts per move of an MCTS computer
+    private int parallelism = 1;            // Threads per move of the searches
+    private GameRecordWriter recorder;      // Null if the games are not recorded
+
+    private final AtomicLong next_chunk = new AtomicLong();
+    private final Stats total;
+
+    // Constructor, for the given number of games on one board size
+    public Simulator(int size, long games, long seed, boolean x_search, Computer.Mode o_mode, long budget) {
+        this.size = size;
+        this.games = games;
+        this.seed = seed;
+        this.x_search = x_search;
+        this.o_mode = o_mode;
+        this.budget = budget;
+        total = new Stats(size);
+    }
+
+    // Cap the playouts per move of an MCTS computer
+    public void setPlayoutBudget(long playouts) {
+        this.playouts = playouts;
+    }
+
+    // Set the number of threads both searches use per move, see Computer.setParallelism
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // Write every game played from now on to the given writer
+    public void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {3, 4, 5};
+        long games = 1_000_000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean x_search = false;
+        Computer.Mode o_mode = Computer.Mode.BLOCKER;
+        long budget = Computer.DEFAULT_TIME_BUDGET;
+        long playouts = Long.MAX_VALUE;
+        int parallelism = 1;
+        Path record = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length)
+                throw new RuntimeException("Option " + args[i] + " needs a value. " + USAGE);
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--games" -> games = Long.parseLong(value.replace("_", ""));
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--x" -> {
+                    if (!value.equalsIgnoreCase("search") && !value.equalsIgnoreCase("random"))
+                        throw new RuntimeException("Unknown X player " + value + ". " + USAGE);
+                    x_search = value.equalsIgnoreCase("search");
+                }
+                case "--o" -> {
+                    try {
+                        o_mode = Computer.Mode.valueOf(value.toUpperCase());
+                    }
+                    catch (IllegalArgumentException e) {
+                        throw new RuntimeException("Unknown computer " + value + ". " + USAGE);
+                    }
+                }
+                case "--budget" -> budget = Long.parseLong(value);
+                case "--playouts" -> playouts = Long.parseLong(value.replace("_", ""));
+                case "--parallelism" -> parallelism = Integer.parseInt(value);
+                case "--record" -> record = Path.of(value);
+                default -> throw new RuntimeException("Unknown option " + args[i] + ". " + USAGE);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        GameRecordWriter recorder = record != null ? new GameRecordWriter(record) : null;
+        try {
+            for (int size : sizes) {
+                System.out.println(size + "x" + size + ": " + games + " games, X " + (x_search ? "search" : "random")
+                        + " against O " + o_mode.toString().toLowerCase() + " on " + threads + " threads");
+                Simulator simulator = new Simulator(size, games, seed, x_search, o_mode, budget);
+                simulator.setPlayoutBudget(playouts);
+                simulator.setParallelism(parallelism);
+                simulator.setRecorder(recorder);
+                simulator.run(pool, threads);
+                System.out.print(simulator.total.summary());
+            }
+        }
+        finally {
+            pool.shutdownNow();
+            if (recorder != null) {
+                recorder.close();
+                System.out.println(recorder.getRecords() + " games recorded in " + record);
+            }
+        }
+    }
+
+    // Play all games on the given number of workers of the pool, printing progress until they are done
+    public Stats run(ExecutorService pool, int workers) throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(pool.submit(this::work));
+        }
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get(REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+                    break;
+                }
+                catch (TimeoutException e) {
+                    System.out.println("  " + total.progress(System.nanoTime() - start));
+                }
+            }
+        }
+        total.setElapsed(System.nanoTime() - start);
+        return total;
+    }
+
+    // Getter method
+    public Stats getStats() {
+        return total;
+    }
+
+    // Private methods:
+
+    // Take chunks of games until all are played, merging the results (and records) of every chunk into the total
+    private Void work() throws IOException {
+        boolean small = Board.fitsBitBoard(size);
+        AlphaBetaSearch search = x_search && small ? new AlphaBetaSearch(size, 16) : null;
+        if (search != null && parallelism > 1)
+            search.setParallelism(parallelism);
+        long x_budget = TimeUnit.MILLISECONDS.toNanos(budget);
+        long full = !small ? 0 : size * size == Long.SIZE ? -1L : (1L << size * size) - 1;
+        Stats stats = new Stats(size);
+        RecordBatch records = recorder != null ? new RecordBatch() : null;
+        long chunks = (games + CHUNK - 1) / CHUNK;
+        for (long chunk = next_chunk.getAndIncrement(); chunk < chunks; chunk = next_chunk.getAndIncrement()) {
+            SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + chunk);
+            long count = Math.min(CHUNK, games - chunk * CHUNK);
+            for (long g = 0; g < count; g++) {
+                TicTacToe game = new TicTacToe(size, o_mode);
+                game.getBot().setSeed(random.nextLong());
+                game.getBot().setTimeBudget(budget, TimeUnit.MILLISECONDS);
+                game.getBot().setPlayoutBudget(playouts);
+                if (parallelism > 1)
+                    game.getBot().setParallelism(parallelism);
+                Board board = game.getState();
+                MoveResult result = MoveResult.ONGOING;
+                while (!result.isFinished()) {
+                    int cell;
+                    if (!small) {
+                        cell = randomBlank(board, random);
+                    }
+                    else {
+                        long x = ((BitBoard) board).getBits(Board.X);
+                        long o = ((BitBoard) board).getBits(Board.O);
+                        cell = search != null
+                                ? search.bestMove(x, o, Board.X, x_budget)
+                                : randomCell(~(x | o) & full, random);
+                    }
+                    result = game.play(cell / size, cell % size);
+                }
+                stats.add(result, board.getCount());
+                if (records != null)
+                    record(game, records);
+            }
+            total.merge(stats);
+            stats.clear();
+            if (records != null)
+                flush(records);
+        }
+        return null;
+    }
+
+    // Add the record of a game to the worker's batch, handing the batch to the recorder once it is full
+    private void record(TicTacToe game, RecordBatch batch) throws IOException {
+        GameRecordWriter.encode(game, batch.bytes);
+        batch.count++;
+        if (batch.bytes.remaining() < GameRecordWriter.maxLength(size * size))
+            flush(batch);
+    }
+
+    // Hand the records of the batch to the recorder
+    private void flush(RecordBatch batch) throws IOException {
+        if (batch.count == 0)
+            return;
+        recorder.append(batch.bytes.flip(), batch.count);
+        batch.bytes.clear();
+        batch.count = 0;
+    }
+
+    // Helper functions:
+
+    // Return a random cell out of a non empty bitboard
+    private static int randomCell(long set, SplittableRandom random) {
+        for (int skip = random.nextInt(Long.bitCount(set)); skip > 0; skip--) {
+            set &= set - 1;
+        }
+        return Long.numberOfTrailingZeros(set);
+    }
+
+    // Return a random blank cell of a board larger than 8x8 that still has some, by trying random cells
+    private static int randomBlank(Board board, SplittableRandom random) {
+        int cells = board.getSize() * board.getSize();
+        int cell;
+        do {
+            cell = random.nextInt(cells);
+        } while (board.get(cell) != Board.EMPTY);
+        return cell;
+    }
+
+    // Records of games a worker collects, to take the lock of the recorder once per batch instead of per game
+    private static final class RecordBatch {
+        final ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+        int count;
+    }
+
+    // Results of a number of games: how they ended and how many marks they took
+    public static final class Stats {
+
+        private final long[] results = new long[MoveResult.values().length];   // Indexed by MoveResult ordinal
+        private final long[] lengths;           // Number of games per number of marks on the final board
+        private long elapsed;                   // Nanoseconds it took to play them, once finished
+
+        public Stats(int size) {
+            lengths = new long[size * size + 1];
+        }
+
+        public void add(MoveResult result, int length) {
+            results[result.ordinal()]++;
+            lengths[length]++;
+        }
+
+        public synchronized void merge(Stats other) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] += other.results[i];
+            }
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] += other.lengths[i];
+            }
+        }
+
+        public void clear() {
+            Arrays.fill(results, 0);
+            Arrays.fill(lengths, 0);
+        }
+
+        // Getter method
+        public synchronized long getGames() {
+            long games = 0;
+            for (long count : results) {
+                games += count;
+            }
+            return games;
+        }
+
+        // Getter method
+        public synchronized long getCount(MoveResult result) {
+            return results[result.ordinal()];
+        }
+
+        void setElapsed(long nanos) {
+            elapsed = nanos;
+        }
+
+        // One line with the games played so far and how fast, after the given nanoseconds
+        synchronized String progress(long nanos) {
+            long games = getGames();
+            return games + " games, " + perSecond(games, nanos) + " games/s, " + rates(games);
+        }
+
+        // Win and draw rates followed by the histogram of game lengths, one line per length that occurred
+        public synchronized String summary() {
+            long games = getGames();
+            StringBuilder result = new StringBuilder();
+            result.append("  ").append(games).append(" games in ").append(elapsed / 1_000_000).append(" ms, ")
+                    .append(perSecond(games, elapsed)).append(" games/s\n");
+            result.append("  ").append(rates(games)).append('\n');
+            long most = 0;
+            for (long count : lengths) {
+                most = Math.max(most, count);
+            }
+            for (int length = 0; length < lengths.length; length++) {
+                if (lengths[length] == 0)
+                    continue;
+                result.append(String.format("  %2d marks %7.3f%% %s%n", length, percent(lengths[length], games),
+                        "#".repeat((int) (40 * lengths[length] / most))));
+            }
+            return result.toString();
+        }
+
+        private String rates(long games) {
+            return String.format("X won %.3f%%, O won %.3f%%, draw %.3f%%",
+                    percent(results[MoveResult.X_WON.ordinal()], games),
+                    percent(results[MoveResult.O_WON.ordinal()], games),
+                    percent(results[MoveResult.DRAW.ordinal()], games));
+        }
+
+        private static double percent(long count, long games) {
+            return games == 0 ? 0 : 100.0 * count / games;
+        }
+
+        private static long perSecond(long games, long nanos) {
+            return nanos == 0 ? 0 : games * 1_000_000_000L / nanos;
+        }
+    }
+}
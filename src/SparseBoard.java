@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+// Board storing only its marked cells, in an open addressing hash table from cell to player, for huge boards
+// (e.g. 100x100) of which a game only ever marks a small part. Memory and the cost of copying grow with the number
+// of marks, not with the size of the board. Removed marks are deleted by shifting the following entries back, so
+// the table never fills up with tombstones.
+public final class SparseBoard implements Board {
+
+    private static final int FREE = -1;
+
+    private final int size;
+    private int[] cells;                    // Marked cell per slot, FREE for empty slots
+    private byte[] players;                 // Player of the cell in the same slot
+    private int count;
+
+    public SparseBoard(int size) {
+        this(size, 64);
+    }
+
+    private SparseBoard(int size, int capacity) {
+        this.size = size;
+        cells = new int[capacity];
+        players = new byte[capacity];
+        Arrays.fill(cells, FREE);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int get(int cell) {
+        int mask = cells.length - 1;
+        for (int slot = hash(cell) & mask; cells[slot] != FREE; slot = (slot + 1) & mask) {
+            if (cells[slot] == cell)
+                return players[slot];
+        }
+        return EMPTY;
+    }
+
+    @Override
+    public void set(int cell, int player) {
+        if (2 * (count + 1) > cells.length)
+            grow();
+        int mask = cells.length - 1;
+        int slot = hash(cell) & mask;
+        while (cells[slot] != FREE && cells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        if (cells[slot] == FREE)
+            count++;
+        cells[slot] = cell;
+        players[slot] = (byte) player;
+    }
+
+    @Override
+    public void clear(int cell) {
+        int mask = cells.length - 1;
+        int slot = hash(cell) & mask;
+        while (cells[slot] != cell) {
+            if (cells[slot] == FREE)
+                return;
+            slot = (slot + 1) & mask;
+        }
+        count--;
+
+        // Move later entries of the same probe run into the gap, if their home slot allows it
+        int gap = slot;
+        for (int next = (gap + 1) & mask; cells[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(cells[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                cells[gap] = cells[next];
+                players[gap] = players[next];
+                gap = next;
+            }
+        }
+        cells[gap] = FREE;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public Board copy() {
+        SparseBoard copy = new SparseBoard(size, cells.length);
+        System.arraycopy(cells, 0, copy.cells, 0, cells.length);
+        System.arraycopy(players, 0, copy.players, 0, players.length);
+        copy.count = count;
+        return copy;
+    }
+
+    // Private methods:
+
+    private void grow() {
+        int[] old_cells = cells;
+        byte[] old_players = players;
+        cells = new int[old_cells.length * 2];
+        players = new byte[old_cells.length * 2];
+        Arrays.fill(cells, FREE);
+        count = 0;
+        for (int slot = 0; slot < old_cells.length; slot++) {
+            if (old_cells[slot] != FREE)
+                set(old_cells[slot], old_players[slot]);
+        }
+    }
+
+    private static int hash(int cell) {
+        int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,23 @@
+// A way of choosing the moves of one side of a game, e.g. a Computer. A strategy is created for one game and one
+// player (see Factory) and only asked for moves when it is that player's turn, so it may keep state between them.
+public interface Strategy {
+
+    // Choose the next move of the strategy's player. Arguments are the coordinate of the opponent's last mark,
+    // or (-1, -1) if the player makes the first mark of the game.
+    // Returns the cell index (row * size + col) of the chosen spot, which the caller has to mark
+    int play(int row, int col);
+
+    // Name of the strategy, for reports
+    String getName();
+
+    // Positions the strategy looked at to choose its last move, 0 if it doesn't search
+    default long getNodes() {
+        return 0;
+    }
+
+    // Creates the strategy of one player in a game
+    interface Factory {
+
+        Strategy create(TicTacToe game, int player);
+    }
+}
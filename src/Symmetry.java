@@ -0,0 +1,93 @@
+import java.util.HashMap;
+
+// The 8 symmetries of a square board (4 rotations, each optionally mirrored) as precomputed cell permutations.
+// Symmetric positions play out the same way under the game rules, since every line maps onto a line and the
+// winning patterns read the same in both directions. Caches and books keyed by position only need to store one
+// of them, the canonical one.
+public final class Symmetry {
+
+    public static final int COUNT = 8;
+    private static final HashMap<Integer, Symmetry> symmetries = new HashMap<>();
+
+    private final int size;
+    private final int[][] forward;          // forward[s][cell] is where symmetry s moves the cell
+    private final int[][] inverse;          // inverse[s] undoes forward[s]
+
+    private Symmetry(int size) {
+        this.size = size;
+        int cells = size * size;
+        forward = new int[COUNT][cells];
+        inverse = new int[COUNT][cells];
+        int last = size - 1;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int[][] targets = {
+                        {row, col},                 // Identity
+                        {col, last - row},          // Rotate 90 degrees
+                        {last - row, last - col},   // Rotate 180 degrees
+                        {last - col, row},          // Rotate 270 degrees
+                        {row, last - col},          // Mirror left to right
+                        {last - row, col},          // Mirror top to bottom
+                        {col, row},                 // Mirror along the diagonal
+                        {last - col, last - row}    // Mirror along the anti diagonal
+                };
+                int cell = row * size + col;
+                for (int s = 0; s < COUNT; s++) {
+                    int target = targets[s][0] * size + targets[s][1];
+                    forward[s][cell] = target;
+                    inverse[s][target] = cell;
+                }
+            }
+        }
+    }
+
+    // Return the shared symmetries of the given board size, building them on first use
+    public static synchronized Symmetry forSize(int size) {
+        return symmetries.computeIfAbsent(size, Symmetry::new);
+    }
+
+    // Getter method
+    public int getSize() {
+        return size;
+    }
+
+    // Where symmetry s moves the given cell
+    public int apply(int s, int cell) {
+        return forward[s][cell];
+    }
+
+    // Which cell symmetry s moves onto the given cell
+    public int revert(int s, int cell) {
+        return inverse[s][cell];
+    }
+
+    // Apply symmetry s to every cell of a bitboard. Only for boards of up to 64 cells
+    public long apply(int s, long bits) {
+        int[] map = forward[s];
+        long result = 0;
+        for (; bits != 0; bits &= bits - 1) {
+            result |= 1L << map[Long.numberOfTrailingZeros(bits)];
+        }
+        return result;
+    }
+
+    // Return the symmetry that turns the position into its canonical form: the one with the smallest
+    // (x, o) pair, comparing x first. Symmetric positions have the same canonical form
+    public int canonical(long x, long o) {
+        int best = 0;
+        long best_x = x;
+        long best_o = o;
+        for (int s = 1; s < COUNT; s++) {
+            long sx = apply(s, x);
+            if (Long.compareUnsigned(sx, best_x) > 0)
+                continue;
+            long so = apply(s, o);
+            if (sx != best_x || Long.compareUnsigned(so, best_o) < 0) {
+                best = s;
+                best_x = sx;
+                best_o = so;
+            }
+        }
+        return best;
+    }
+}
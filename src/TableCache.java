@@ -0,0 +1,165 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Keeps the precomputed per-size tables of the large boards (Neighborhood, PositionKey) in files, so a short run in a
+// cold JVM, like a simulation, a server that just started or the GUI's first game, reads them instead of computing them
+// again in the interpreter. Every table is its own file "<name>-<size>.v<VERSION>": a header with a magic number, the
+// length and a CRC32 of the data, followed by the data in the native byte order. A file is read with a plain stream,
+// checked and copied into a new array, so the engine keeps indexing plain arrays: memory-mapping it would load more NIO
+// classes than reading it takes.
+// Tables smaller than MIN_BYTES, like everything of the boards up to 8x8, are always computed: opening and reading a
+// file costs more than that in a cold JVM, where the time goes to loading classes (see the AppCDS archive in the
+// README) rather than to the tables.
+// A missing, damaged or outdated file is computed as before and written for the next run, to a temporary file that is
+// then moved into place, so JVMs starting at the same time never read half a table. Any I/O error only costs the time
+// saved.
+// The files go to ~/.cache/tictactoe, or to the directory in the system property tictactoe.cache.dir; an empty value
+// turns the cache off. Bump VERSION whenever the contents of a cached table change.
+public final class TableCache {
+
+    private static final int VERSION = 1;
+    private static final int MAGIC = 0x54544354;   // "TTCT"
+    private static final int HEADER = 12;           // Magic, length in bytes, CRC32 of the data
+    private static final int MIN_BYTES = 128 * 1024;
+    private static final Path DIRECTORY = directory();
+
+    private static final Logger log = Logger.get("cache");
+
+    private TableCache() {
+    }
+
+    // Return the table of ints with the given name, board size and length from the cache, or build and cache it
+    public static int[] ints(String name, int size, int length, Supplier<int[]> build) {
+        if (!isCached(length * (long) Integer.BYTES))
+            return build.get();
+        ByteBuffer data = load(name, size, length * Integer.BYTES);
+        if (data != null) {
+            int[] table = new int[length];
+            data.asIntBuffer().get(table);
+            return table;
+        }
+        int[] table = build.get();
+        ByteBuffer bytes = allocate(table.length * Integer.BYTES);
+        bytes.asIntBuffer().put(table);
+        store(name, size, bytes);
+        return table;
+    }
+
+    // Same as above, for a table of longs
+    public static long[] longs(String name, int size, int length, Supplier<long[]> build) {
+        if (!isCached(length * (long) Long.BYTES))
+            return build.get();
+        ByteBuffer data = load(name, size, length * Long.BYTES);
+        if (data != null) {
+            long[] table = new long[length];
+            data.asLongBuffer().get(table);
+            return table;
+        }
+        long[] table = build.get();
+        ByteBuffer bytes = allocate(table.length * Long.BYTES);
+        bytes.asLongBuffer().put(table);
+        store(name, size, bytes);
+        return table;
+    }
+
+    // Same as above, for a table of bytes
+    public static byte[] bytes(String name, int size, int length, Supplier<byte[]> build) {
+        if (!isCached(length))
+            return build.get();
+        ByteBuffer data = load(name, size, length);
+        if (data != null) {
+            byte[] table = new byte[length];
+            data.get(table);
+            return table;
+        }
+        byte[] table = build.get();
+        store(name, size, allocate(table.length).put(table).flip());
+        return table;
+    }
+
+    // Helper functions:
+
+    // Whether a table of the given number of bytes goes through the cache
+    private static boolean isCached(long bytes) {
+        return DIRECTORY != null && bytes >= MIN_BYTES && bytes <= Integer.MAX_VALUE - HEADER;
+    }
+
+    // The data of a cached table of the given number of bytes, or null if there is no valid one
+    private static ByteBuffer load(String name, int size, int bytes) {
+        Path file = DIRECTORY.resolve(fileName(name, size));
+        byte[] contents;
+        try (FileInputStream in = new FileInputStream(file.toFile())) {
+            contents = in.readNBytes(HEADER + bytes + 1);
+        }
+        catch (IOException e) {
+            return null;                // Not cached yet
+        }
+        ByteBuffer header = ByteBuffer.wrap(contents).order(ByteOrder.nativeOrder());
+        if (contents.length != HEADER + bytes || header.getInt(0) != MAGIC || header.getInt(4) != bytes)
+            return null;
+        CRC32 crc = new CRC32();
+        crc.update(contents, HEADER, bytes);
+        if ((int) crc.getValue() != header.getInt(8)) {
+            log.log(LogLevel.WARN, "Ignoring the damaged table cache {}", file);
+            return null;
+        }
+        return ByteBuffer.wrap(contents, HEADER, bytes).slice().order(ByteOrder.nativeOrder());
+    }
+
+    // Write the data of a table (from its position to its limit) to the cache
+    private static void store(String name, int size, ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        ByteBuffer header = allocate(HEADER).putInt(MAGIC).putInt(data.remaining()).putInt((int) crc.getValue())
+                .flip();
+        Path temporary = null;
+        try {
+            Files.createDirectories(DIRECTORY);
+            temporary = Files.createTempFile(DIRECTORY, fileName(name, size), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || data.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, data});
+                }
+            }
+            Files.move(temporary, DIRECTORY.resolve(fileName(name, size)), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            log.log(LogLevel.WARN, "Could not cache the table {}: {}", fileName(name, size), e);
+            try {
+                if (temporary != null)
+                    Files.deleteIfExists(temporary);
+            }
+            catch (IOException ignored) {
+                // Left for the next run to overwrite
+            }
+        }
+    }
+
+    // A StringBuilder, as the first string concatenation with + of a JVM spends longer bootstrapping than loading
+    private static String fileName(String name, int size) {
+        return new StringBuilder(name).append('-').append(size).append(".v").append(VERSION).toString();
+    }
+
+    private static ByteBuffer allocate(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+    }
+
+    // The directory of the cache, or null if it is turned off
+    private static Path directory() {
+        String property = System.getProperty("tictactoe.cache.dir");
+        if (property != null)
+            return property.isEmpty() ? null : Path.of(property);
+        String home = System.getProperty("user.home");
+        return home == null || home.isEmpty() ? null : Path.of(home, ".cache", "tictactoe");
+    }
+}
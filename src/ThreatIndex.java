@@ -0,0 +1,145 @@
+// Lines of one game kept up to date mark by mark, so win detection and threat queries don't have to rescan the
+// board. For every line of the WinChecker it holds the marks of both players as line-local bitmasks (bit k for
+// the k-th cell of the line), from which the counts of X and O and whether the ends are open are single bit
+// operations. From those it also keeps, per player, the blank cells where marking would win right away.
+// A mark or unmark only touches the at most 4 lines through its cell, so updating costs O(lines through the
+// cell) and allocates nothing. The winning cells of a line are looked up in a table of all patterns of up to 8
+// cells rather than tried one by one. Only for boards that fit a BitBoard, larger boards check around each mark
+// with WinChecker.isWinningAround instead.
+public final class ThreatIndex {
+
+    // Results of findWinning for every line of up to 8 cells, indexed by length and then own << length | opp.
+    // Built for the lengths of a board size when the first game of that size starts, see winningFor()
+    private static final byte[][] WINNING = new byte[BitBoard.MAX_SIZE + 1][];
+
+    private final WinChecker wins;
+    private final byte[][] winning;             // WINNING, filled up to the length of the board
+    private final long[][] line_bits;           // [player][line] marks of the player on the line
+    private final long[][] line_threats;        // [player][line] blank positions of the line where the player wins
+    private final byte[][] threat_count;        // [player][cell] lines on which marking the cell wins
+    private final long[] threats = new long[3]; // [player] bitboard of the cells with a threat count above 0
+
+    // Constructor, for an empty board of the given size
+    public ThreatIndex(int size) {
+        wins = WinChecker.forSize(size);
+        winning = winningFor(size);
+        int lines = wins.getLineCount();
+        line_bits = new long[3][lines];
+        line_threats = new long[3][lines];
+        threat_count = new byte[3][size * size];
+    }
+
+    // Update the lines through the cell after the player marked it
+    public void mark(int player, int cell) {
+        update(player, cell, true);
+    }
+
+    // Update the lines through the cell after the player's mark was removed from it
+    public void unmark(int player, int cell) {
+        update(player, cell, false);
+    }
+
+    // Check whether the player wins on any line through the given cell, with the marks as they are now.
+    // Same result as WinChecker.isWinning on the game's bitboards
+    public boolean isWinning(int player, int cell) {
+        long[] own = line_bits[player];
+        long[] opp = line_bits[Board.opponent(player)];
+        for (int line : wins.getLinesThrough(cell)) {
+            if (WinChecker.checkLine(own[line], opp[line]))
+                return true;
+        }
+        return false;
+    }
+
+    // Bitboard of the blank cells where the player would win by marking them: the cells the other player must
+    // block
+    public long getWinningCells(int player) {
+        return threats[player];
+    }
+
+    // Marks of the player on the given line, bit k being the k-th cell of WinChecker.getLine(line)
+    public long getLineBits(int player, int line) {
+        return line_bits[player][line];
+    }
+
+    // Private methods:
+
+    private void update(int player, int cell, boolean marked) {
+        int[] lines = wins.getLinesThrough(cell);
+        int[] positions = wins.getPositions(cell);
+        for (int j = 0; j < lines.length; j++) {
+            int line = lines[j];
+            if (marked)
+                line_bits[player][line] |= 1L << positions[j];
+            else
+                line_bits[player][line] &= ~(1L << positions[j]);
+            refresh(line, Board.X);
+            refresh(line, Board.O);
+        }
+    }
+
+    // Work out the blank positions of the line where the player wins by marking them, and move the cell counts
+    // of the positions that changed
+    private void refresh(int line, int player) {
+        long own = line_bits[player][line];
+        long opp = line_bits[Board.opponent(player)][line];
+        int length = wins.getLine(line).length;
+        long now = length < winning.length
+                ? winning[length][(int) (own << length | opp)] & 0xFF
+                : findWinning(own, opp, length);
+        long old = line_threats[player][line];
+        if (now == old)
+            return;
+        line_threats[player][line] = now;
+        count(line, player, old & ~now, -1);
+        count(line, player, now & ~old, 1);
+    }
+
+    // Add delta to the threat count of the cells at the given positions of the line
+    private void count(int line, int player, long positions, int delta) {
+        int[] cells = wins.getLine(line);
+        byte[] counts = threat_count[player];
+        for (; positions != 0; positions &= positions - 1) {
+            int cell = cells[Long.numberOfTrailingZeros(positions)];
+            counts[cell] += delta;
+            if (counts[cell] == 0)
+                threats[player] &= ~(1L << cell);
+            else
+                threats[player] |= 1L << cell;
+        }
+    }
+
+    // Return WINNING with the tables of all lines of a board of the given size, building those that are missing.
+    // The caller reads them after taking the lock, so they are complete. At 64 KB for 8 cells they are below
+    // TableCache's threshold, so they are always computed
+    private static synchronized byte[][] winningFor(int size) {
+        for (int length = 3; length <= Math.min(size, WINNING.length - 1); length++) {
+            if (WINNING[length] == null)
+                WINNING[length] = buildWinning(length);
+        }
+        return WINNING;
+    }
+
+    private static byte[] buildWinning(int length) {
+        byte[] table = new byte[1 << 2 * length];
+        for (int own = 0; own < 1 << length; own++) {
+            for (int opp = 0; opp < 1 << length; opp++) {
+                if ((own & opp) == 0)
+                    table[own << length | opp] = (byte) findWinning(own, opp, length);
+            }
+        }
+        return table;
+    }
+
+    // Blank positions of a line of the given length where the owner of own wins by marking them
+    private static long findWinning(long own, long opp, int length) {
+        long blank = ~(own | opp) & ((1L << length) - 1);
+        long result = 0;
+        for (; blank != 0; blank &= blank - 1) {
+            long bit = blank & -blank;
+            if (WinChecker.checkLine(own | bit, opp))
+                result |= bit;
+        }
+        return result;
+    }
+}
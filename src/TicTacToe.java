@@ -1,216 +1,304 @@
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-
+// A game of TicTacToe between a player (X) and the computer (O).
+// A game is not thread-safe by itself: callers sharing a game between threads have to serialize the moves,
+// which is what SessionManager does for hosted games.
 public class TicTacToe {
     // Some constants that we will be using
     public static final String EX = "x";
     public static final String OH = "o";
     public static final String BLANK = "";
-    private final List<String> win_X_1      = Arrays.asList(EX, EX, EX);
-    private final List<String> win_X_2      = Arrays.asList(OH, EX, EX, EX, EX);
-    private final List<String> win_X_3      = Arrays.asList(EX, EX, EX, EX, OH);
-    private final List<String> blocked_X_1  = Arrays.asList(OH, EX, EX, EX, OH);
-    private final List<String> blocked_X_2  = Arrays.asList(OH, EX, EX, EX);
-    private final List<String> blocked_X_3  = Arrays.asList(EX, EX, EX, OH);
-    private final List<String> win_O_1      = Arrays.asList(OH, OH, OH);
-    private final List<String> win_O_2      = Arrays.asList(OH, OH, OH, OH, EX);
-    private final List<String> win_O_3      = Arrays.asList(EX, OH, OH, OH, OH);
-    private final List<String> blocked_O_1  = Arrays.asList(EX, OH, OH, OH, EX);
-    private final List<String> blocked_O_2  = Arrays.asList(OH, OH, OH, EX);
-    private final List<String> blocked_O_3  = Arrays.asList(EX, OH, OH, OH);
+    private static final int X = Board.X;
+    private static final int O = Board.O;
+
+    public static final int MAX_SIZE = 100;
+
+    private static final Logger log = Logger.get("game");
+    private static final Counter moves = Metrics.counter("game.moves");
+    private static final Counter illegal_moves = Metrics.counter("game.illegal_moves");
+    private static final Counter x_won = Metrics.counter("game.x_won");
+    private static final Counter o_won = Metrics.counter("game.o_won");
+    private static final Counter draws = Metrics.counter("game.draws");
+    private static final LatencyHistogram mark_latency = Metrics.histogram("game.mark_ns");     // Every legal mark
+    private static final LatencyHistogram check_latency = Metrics.histogram("game.check_winning_ns");
 
     private final int size;          // Length of one side of board. E.g. size 3 => 3x3 board
     private int fill_count;          // Counter to keep track of how many spots have been filled (in case of draw)
-    private final String[][] board;        // Board is represented as a 2D array
-    private final Computer bot;            // Bot player
-
-    // Constructor, initialize a board with the given size and fill all entries with the blank string
-    // Also initialize a new computer player
+    private final Board board;       // Board is represented as two bitboards, one per player
+    private final ThreatIndex threats;   // Marks per line and winning cells, null for boards above 8x8
+    private final PositionKey key;   // Hash of the position, updated on every mark
+    private final MoveJournal journal;   // Every mark in order, for records and replays
+    private String[][] board_view;   // String view of the board for getBoard(), rebuilt lazily after a mark
+    private final Strategy strategy; // Bot player, choosing the replies of play()
+    private final Computer bot;      // The same as strategy if that is a Computer, otherwise null
+    private MoveResult result;       // ONGOING until someone won or the board is full
+    private GameListener listener;   // Told about every changed cell, null if nobody listens
+
+    // Constructor, initialize an empty board with the given size
+    // Also initialize a new computer player using the simple BLOCKER strategy
     public TicTacToe(int n) {
-        if (n > 7)
-            throw new RuntimeException("Maximum board size allowed is 7!");
-        board = new String[n][n];
+        this(n, Computer.Mode.BLOCKER);
+    }
+
+    // Constructor, same as above with the given strategy for the computer player
+    public TicTacToe(int n, Computer.Mode mode) {
+        this(n, (game, player) -> new Computer(game, mode, player));
+    }
+
+    // Constructor, same as above with the computer player (O) created by the given factory
+    public TicTacToe(int n, Strategy.Factory factory) {
+        if (n > MAX_SIZE)
+            throw new RuntimeException("Maximum board size allowed is " + MAX_SIZE + "!");
+        board = Board.create(n);
+        threats = Board.fitsBitBoard(n) ? new ThreatIndex(n) : null;
+        key = new PositionKey(n);
+        journal = new MoveJournal();
         size = n;
-        fillBlank(board);
         fill_count = 0;
-        bot = new Computer(this);
-        System.out.println("New game of size " + n + " was created");
+        result = MoveResult.ONGOING;
+        strategy = factory.create(this, O);
+        bot = strategy instanceof Computer computer ? computer : null;
+        log.log(LogLevel.DEBUG, "New game of size {} was created", n);
     }
 
     // Getter method
-    public String[][] getBoard() {
+    public Board getState() {
         return board;
     }
 
+    // Return the board as a matrix of EX, OH and BLANK. Only kept for compatibility, the view is rebuilt
+    // lazily on the first call after a mark and should not be used in hot paths
+    public String[][] getBoard() {
+        if (board_view == null) {
+            board_view = new String[size][size];
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    board_view[row][col] = toMarker(board.get(row, col));
+                }
+            }
+        }
+        return board_view;
+    }
+
+    // Getter method
+    public PositionKey getKey() {
+        return key;
+    }
+
+    // Return the threat index of the game, or null if the board is larger than 8x8
+    public ThreatIndex getThreats() {
+        return threats;
+    }
+
+    // Getter method
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    // Return the computer player, or null if the game was created with a strategy that isn't a Computer
+    public Computer getBot() {
+        return bot;
+    }
+
+    // Getter method
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
     // Getter method
     public int getSize() {
         return size;
     }
 
-    // Mark a spot with either X or O, then check whether X or O at that position would win
-    // Throw exception if marker is not X or O
-    // Throw AlreadyMarkedException is someone tries to mark an already marked spot
-    // Throw DrawException if the board is full after marking and no one wins
-    public synchronized boolean mark(String marker, int row, int col) {
-        if (!marker.equals(EX) && !marker.equals(OH))
-            throw new RuntimeException("Invalid marker! Either X or O!");
-
-        if (!board[row][col].equals(BLANK))
-            throw new AlreadyMarkedException("This spot has already been marked! Catch me and ignore this action!");
+    // Getter method
+    public MoveResult getResult() {
+        return result;
+    }
 
-        board[row][col] = marker;
-        fill_count += 1;
+    // Tell the given listener (null for none) about every cell that changes from now on
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
 
-        System.out.println("Player " + marker + " has marked (" + row + ", " + col + ")");
+    // Headless API: the player marks a spot as X, then the computer replies with an O if the game is not over yet.
+    // Returns the result after the computer's reply, or the result of the player's move if that already ended
+    // the game. Never throws on a finished game or an invalid spot, ILLEGAL is returned instead.
+    public MoveResult play(int row, int col) {
+        MoveResult outcome = move(X, row, col);
+        if (outcome != MoveResult.ONGOING)
+            return outcome;
 
-        boolean result = checkWinning(marker, row, col);
+        int cell = strategy.play(row, col);
+        return move(O, cell / size, cell % size);
+    }
 
-        if (fill_count == size * size && !result)
-            throw new DrawException("It's a draw! Catch me and display a draw screen!");
+    // Headless API: mark a single spot with the given player (Board.X or Board.O) without letting the computer reply
+    public MoveResult move(int player, int row, int col) {
+        if (player != X && player != O)
+            throw new RuntimeException("Invalid marker! Either X or O!");
 
-        if (result && marker.equals(EX)) {
-            System.out.println("Player " + marker + " won!");
-            return true;
+        if (result.isFinished() || !isInBound(row, col) || !board.isEmpty(row, col)) {
+            illegal_moves.increment();
+            return MoveResult.ILLEGAL;
         }
 
-        if (result)
-            throw new BotWonException();
-
-        if (marker.equals(EX))
-            bot.play(row, col);
+        long start = Metrics.startTimer();
+        journal.append(player, board.toCell(row, col));
+        MoveResult outcome = place(player, row, col);
+        mark_latency.recordSince(start);
+        return outcome;
+    }
 
-        return false;
+    // Take back the last mark, of either player, so the game goes on from the position before it. Returns false
+    // if there is no mark to take back. Undone marks can be played again with redo() until a new mark is made.
+    // Like move(), this only updates the bitboards, the hash and a few counters
+    public boolean undo() {
+        int move = journal.undo();
+        if (move < 0)
+            return false;
+
+        int cell = MoveJournal.decodeCell(move);
+        int player = MoveJournal.decodePlayer(move);
+        board.clear(cell);
+        key.toggle(player, cell);
+        if (threats != null)
+            threats.unmark(player, cell);
+        board_view = null;
+        fill_count -= 1;
+        result = MoveResult.ONGOING;        // No mark is accepted after the end, so the game was still going on
+        log.log(LogLevel.DEBUG, "Mark at ({}, {}) was taken back", cell / size, cell % size);
+        if (listener != null)
+            listener.cellChanged(cell, Board.EMPTY);
+        return true;
     }
 
-    // Check whether X or O win at the given coordinate. This should be performed after every marking.
-    public boolean checkWinning(String mark, int row, int col) {
-        List<String> horizontal     = Arrays.asList(board[row]);
-        List<String> vertical       = getVertical(col);
-        List<String> diagonal       = getDiagonal(row, col);
-        List<String> anti_diagonal  = getAntiDiagonal(row, col);
+    // Play the last undone mark again. Returns false if there is none. The mark was counted in the metrics when it
+    // was first made, so it isn't counted again
+    public boolean redo() {
+        int move = journal.redo();
+        if (move < 0)
+            return false;
 
-        boolean checkHorizontal     = checkLine(mark, horizontal);
-        boolean checkVertical       = checkLine(mark, vertical);
-        boolean checkDiagonal       = checkLine(mark, diagonal);
-        boolean checkAntiDiagonal   = checkLine(mark, anti_diagonal);
+        apply(MoveJournal.decodePlayer(move), MoveJournal.decodeCell(move));
+        return true;
+    }
 
-        return checkHorizontal || checkVertical || checkDiagonal || checkAntiDiagonal;
+    // Take back the player's last X together with the computer's reply to it, as a "take back" button would.
+    // Returns false if X has not marked anything yet
+    public boolean takeBack() {
+        for (int i = journal.size() - 1; i >= 0; i--) {
+            if (journal.getPlayer(i) == X) {
+                while (journal.size() > i) {
+                    undo();
+                }
+                return true;
+            }
+        }
+        return false;
     }
 
-    // Helper functions:
+    // Return an immutable copy of the current position, see GameSnapshot
+    public GameSnapshot snapshot() {
+        return new GameSnapshot(board.copy(), result, journal.size(), key.getHash());
+    }
 
-    // https://stackoverflow.com/questions/29703847/can-i-use-arrays-fill-with-a-2d-array-if-so-how-do-i-do-that
-    // Fill a matrix with the blank string
-    private void fillBlank(String[][] arr) {
-        for (String[] strings : arr) {
-            Arrays.fill(strings, BLANK);
-        }
+    // Compatibility layer over play() and move() that reports the outcome through exceptions, as the game used to.
+    // Mark a spot with either X or O, then check whether X or O at that position would win. If X was marked and
+    // nobody won yet, the computer replies right away.
+    // Returns true if X won
+    // Throw exception if marker is not X or O
+    // Throw AlreadyMarkedException is someone tries to mark an already marked spot (or the game is already over)
+    // Throw DrawException if the board is full after marking and no one wins
+    // Throw BotWonException if O won
+    public boolean mark(String marker, int row, int col) {
+        return mark(toPlayer(marker), row, col);
     }
 
-    // https://stackoverflow.com/questions/1111998/how-to-get-a-column-from-a-2d-java-array
-    // Returns the specified column from a matrix as a list, entries are from top to bottom
-    private List<String> getVertical(int col) {
-        ArrayList<String> res = new ArrayList<>();
+    // Same as above, but with the player given as Board.X or Board.O
+    public boolean mark(int player, int row, int col) {
+        if (!isInBound(row, col))
+            throw new IndexOutOfBoundsException("(" + row + ", " + col + ") is outside of the board!");
+
+        MoveResult outcome = player == X ? play(row, col) : move(player, row, col);
+        return switch (outcome) {
+            case ONGOING -> false;
+            case X_WON -> true;
+            case O_WON -> throw new BotWonException();
+            case DRAW -> throw new DrawException("It's a draw! Catch me and display a draw screen!");
+            case ILLEGAL ->
+                throw new AlreadyMarkedException("This spot has already been marked! Catch me and ignore this action!");
+        };
+    }
 
-        for (int row = 0; row < size; row++) {
-            res.add(board[row][col]);
-        }
+    // Check whether X or O win at the given coordinate. This should be performed after every marking.
+    public boolean checkWinning(String mark, int row, int col) {
+        return checkWinning(toPlayer(mark), row, col);
+    }
 
-        return res;
+    // Same as above, but with the player given as Board.X or Board.O
+    public boolean checkWinning(int mark, int row, int col) {
+        int cell = board.toCell(row, col);
+        return threats != null ? threats.isWinning(mark, cell) : WinChecker.isWinningAround(board, mark, cell);
     }
 
-    // Return the diagonal that the specified element belongs to as a list, entries are from top left to bottom right
-    private List<String> getDiagonal(int row, int col) {
-        String entry = board[row][col];
-        ArrayList<String> pre  = new ArrayList<>();     // List for entries before current entry
-        ArrayList<String> post = new ArrayList<>();     // List for entries after current entry
+    // Private methods:
+
+    // Mark a blank spot of an ongoing game and update the result, counting the mark and the end of the game
+    private MoveResult place(int player, int row, int col) {
+        apply(player, board.toCell(row, col));
+        log.log(LogLevel.DEBUG, player == X ? "Player x has marked ({}, {})" : "Player o has marked ({}, {})",
+                row, col);
 
-        int i = row;
-        int j = col;
-        while (i != 0 && j != 0) {
-            i--;
-            j--;
-            pre.add(board[i][j]);
+        moves.increment();
+        if (result == MoveResult.X_WON || result == MoveResult.O_WON) {
+            (player == X ? x_won : o_won).increment();
+            log.log(LogLevel.DEBUG, player == X ? "Player x won!" : "Player o won!");
         }
-        Collections.reverse(pre);       // Have to reverse because we are going from bottom up top
-        pre.add(entry);                 // Add current entry to the end
-
-        i = row;
-        j = col;
-        while (i != size - 1 && j != size - 1) {
-            i++;
-            j++;
-            post.add(board[i][j]);
-        }                               // No reverse since we are already going from top to bottom
-        pre.addAll(post);               // Add the rest to the end of the first list
-
-        return pre;
-    }
-
-    // Return the anti diagonal that the specified element belongs to as a list, entries are from top right to bottom left
-    private List<String> getAntiDiagonal(int row, int col) {
-        String entry = board[row][col];
-        ArrayList<String> pre  = new ArrayList<>();     // List for entries before current entry
-        ArrayList<String> post = new ArrayList<>();     // List for entries after current entry
-
-        int i = row;
-        int j = col;
-        while (i != 0 && j != size - 1) {
-            i--;
-            j++;
-            pre.add(board[i][j]);
+        else if (result == MoveResult.DRAW) {
+            draws.increment();
         }
-        Collections.reverse(pre);       // Have to reverse because we are going from bottom up top
-        pre.add(entry);                 // Add current entry to the end
+        return result;
+    }
 
-        i = row;
-        j = col;
-        while (i != size - 1 && j != 0) {
-            i++;
-            j--;
-            post.add(board[i][j]);
-        }                               // No reverse since we are already going from top to bottom
-        pre.addAll(post);               // Add the rest to the end of the first list
+    // Mark a blank cell and update the bitboards, the hash, the threats and the result, without counting anything.
+    // Shared by place() and redo(), which only restores a mark that was already counted
+    private void apply(int player, int cell) {
+        board.set(cell, player);
+        key.toggle(player, cell);
+        if (threats != null)
+            threats.mark(player, cell);
+        board_view = null;
+        fill_count += 1;
 
-        return pre;
+        long start = Metrics.startTimer();
+        boolean won = checkWinning(player, cell / size, cell % size);
+        check_latency.recordSince(start);
+        if (won)
+            result = MoveResult.won(player);
+        else if (fill_count == size * size)
+            result = MoveResult.DRAW;
+        if (listener != null)
+            listener.cellChanged(cell, player);
     }
 
-    // Private methods:
+    // Helper functions:
 
-    // Check whether X or O win at given line
-    // Logic: When the board is larger than 3x3, if your marks are blocked by the opposite mark, you have to
-    // have 4 marks instead. So the only possible winning solutions are XXXXO, OXXXX, OOOOX, XOOOO, XXX, OOO.
-    // Knowing this we can check from the biggest set to smallest set to see if any of those solutions exist.
-    private boolean checkLine(String mark, List<String> line) {
-        switch (mark) {
-            case EX -> {
-                // Case XXXXO or OXXXX
-                if (Collections.indexOfSubList(line, win_X_2) != -1 || Collections.indexOfSubList(line, win_X_3) != -1)
-                    return true;
-                // Case OXXXO / OXXX_ / _XXXO, then X cannot win
-                if (Collections.indexOfSubList(line, blocked_X_1) != -1 ||
-                    Collections.indexOfSubList(line, blocked_X_2) != -1 ||
-                    Collections.indexOfSubList(line, blocked_X_3) != -1)
-                    return false;
-                // Case XXX, with them not being blocked by any O
-                return Collections.indexOfSubList(line, win_X_1) != -1;
-            }
-            case OH -> {
-                // Case OOOOX or XOOOO
-                if (Collections.indexOfSubList(line, win_O_2) != -1 || Collections.indexOfSubList(line, win_O_3) != -1)
-                    return true;
-                // Case XOOOX / _OOOX / XOOO_, then O cannot win
-                if (Collections.indexOfSubList(line, blocked_O_1) != -1 ||
-                    Collections.indexOfSubList(line, blocked_O_2) != -1 ||
-                    Collections.indexOfSubList(line, blocked_O_3) != -1)
-                    return false;
-                // Case OOO, with them not being blocked by any X
-                return Collections.indexOfSubList(line, win_O_1) != -1;
-            }
-        }
-        // This should never be reached, since all the possible options are already checked above
-        return false;
+    // Check if the given coordinate is valid
+    private boolean isInBound(int row, int col) {
+        return 0 <= row && row < size && 0 <= col && col < size;
+    }
+
+    // Convert a marker string to its player constant
+    private static int toPlayer(String marker) {
+        if (marker.equals(EX)) return X;
+        if (marker.equals(OH)) return O;
+        throw new RuntimeException("Invalid marker! Either X or O!");
+    }
+
+    // Convert a player constant to its marker string
+    private static String toMarker(int player) {
+        return switch (player) {
+            case X -> EX;
+            case O -> OH;
+            default -> BLANK;
+        };
     }
-}
\ No newline at end of file
+}
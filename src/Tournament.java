@@ -0,0 +1,368 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Round robin between computer players, to see whether a stronger strategy is worth what it costs: every pair of
+// players meets on every board size for the same number of games, each playing X in half of them. The games run on
+// all cores. Per board size, the players are listed with their Elo rating, its 95% confidence interval, their wins,
+// draws and losses, the average thinking time per move and the positions searched per second.
+//
+// Usage: java Tournament [--players blocker,search:depth=4,mcts:playouts=500] [--sizes 3,4,5,6,7] [--games N]
+//                        [--seed S] [--threads T] [--budget ms]
+// A player is a Computer.Mode, optionally capped with depth=N (SEARCH) or playouts=N (MCTS), and searching on
+// parallelism=N threads (SEARCH and MCTS, see Computer.setParallelism), several options being separated by ':'.
+// --games is the number of games per pair of players and size, --budget the thinking time per move of the
+// searches. Every game gets its own random numbers derived from the seed, so the results only depend
+// on the seed, not on the number of threads, as long as no search runs out of time: give capped searches a budget
+// larger than they need.
+//
+// The ratings are the maximum likelihood fit of the Elo model to all games of a size, averaging 1500. Every pair
+// is counted with one extra draw, which keeps the ratings finite when a player wins or loses every game. The
+// confidence interval comes from the curvature of the fit at the player's rating, the others' held fixed.
+public class Tournament {
+
+    private static final String USAGE = "Usage: java Tournament [--players blocker,search:depth=4,mcts:playouts=500]"
+            + " [--sizes 3,4,5,6,7] [--games N] [--seed S] [--threads T] [--budget ms]";
+    private static final int CHUNK = 16;                    // Games a worker takes at a time
+    private static final double ELO_SCALE = 400 / Math.log(10);
+    private static final int FIT_ITERATIONS = 200;
+
+    private final Player[] players;
+    private final int size;
+    private final long games;               // Per pair of players
+    private final long seed;
+    private final long budget;              // In milliseconds
+    private final int pairs;
+
+    private final AtomicLong next_chunk = new AtomicLong();
+    private final Stats total;
+
+    // Constructor, for the given number of games per pair of players on one board size
+    public Tournament(Player[] players, int size, long games, long seed, long budget) {
+        if (players.length < 2)
+            throw new RuntimeException("A tournament needs at least two players!");
+        if (size < 3 || !Board.fitsBitBoard(size))
+            throw new RuntimeException("Tournaments are played on boards from 3x3 to 8x8!");
+        this.players = players;
+        this.size = size;
+        this.games = games;
+        this.seed = seed;
+        this.budget = budget;
+        pairs = players.length * (players.length - 1) / 2;
+        total = new Stats(players.length);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] names = {"blocker", "search:depth=4", "mcts:playouts=500"};
+        int[] sizes = {3, 4, 5, 6, 7};
+        long games = 100;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long budget = 1000;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length)
+                throw new RuntimeException("Option " + args[i] + " needs a value. " + USAGE);
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--players" -> names = value.split(",");
+                case "--sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--games" -> games = Long.parseLong(value.replace("_", ""));
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--budget" -> budget = Long.parseLong(value);
+                default -> throw new RuntimeException("Unknown option " + args[i] + ". " + USAGE);
+            }
+        }
+        Player[] players = Arrays.stream(names).map(Player::parse).toArray(Player[]::new);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int size : sizes) {
+                System.out.println(size + "x" + size + ": " + players.length + " players, " + games
+                        + " games per pair on " + threads + " threads");
+                Tournament tournament = new Tournament(players, size, games, seed, budget);
+                tournament.run(pool, threads);
+                System.out.print(tournament.summary());
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Play all games on the given number of workers of the pool
+    public Stats run(ExecutorService pool, int workers) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(pool.submit(this::work));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return total;
+    }
+
+    // Getter method
+    public Stats getStats() {
+        return total;
+    }
+
+    // One line per player, the best rated first
+    public String summary() {
+        double[][] ratings = total.ratings();
+        Integer[] order = new Integer[players.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -ratings[0][i]));
+
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("  %-20s %6s %6s %7s %7s %7s %13s %12s%n", "player", "Elo", "+-95%", "won",
+                "drawn", "lost", "think/move", "nodes/s"));
+        for (int i : order) {
+            long[] record = total.record(i);
+            long moves = total.moves[i];
+            double seconds = total.think_nanos[i] / 1e9;
+            result.append(String.format("  %-20s %6.0f %6.0f %7d %7d %7d %10.1f us %12s%n", players[i].getName(),
+                    ratings[0][i], ratings[1][i], record[0], record[1], record[2],
+                    moves == 0 ? 0 : total.think_nanos[i] / 1e3 / moves,
+                    total.nodes[i] == 0 || seconds == 0 ? "-" : String.valueOf(Math.round(total.nodes[i] / seconds))));
+        }
+        return result.toString();
+    }
+
+    // Private methods:
+
+    // Take chunks of games until all are played, merging the results of every chunk into the total. Game number
+    // g is game g / pairs of the pair g % pairs
+    private Void work() {
+        int[][] pair_list = pairList();
+        Stats stats = new Stats(players.length);
+        long count = games * pairs;
+        long chunks = (count + CHUNK - 1) / CHUNK;
+        for (long chunk = next_chunk.getAndIncrement(); chunk < chunks; chunk = next_chunk.getAndIncrement()) {
+            for (long g = chunk * CHUNK; g < Math.min(count, (chunk + 1) * CHUNK); g++) {
+                int[] pair = pair_list[(int) (g % pairs)];
+                long round = g / pairs;
+                // Both players take turns playing X
+                int x = round % 2 == 0 ? pair[0] : pair[1];
+                int o = round % 2 == 0 ? pair[1] : pair[0];
+                play(x, o, new SplittableRandom(seed * 0x9E3779B97F4A7C15L + size * 0x632BE59BD9B4E019L + g), stats);
+            }
+            total.merge(stats);
+            stats.clear();
+        }
+        return null;
+    }
+
+    // Play one game of player x against player o, adding its result and the players' effort to the stats
+    private void play(int x, int o, SplittableRandom random, Stats stats) {
+        long x_seed = random.nextLong();
+        long o_seed = random.nextLong();
+        TicTacToe game = new TicTacToe(size, (g, player) -> players[o].create(g, player, o_seed, budget));
+        Strategy[] sides = {players[x].create(game, Board.X, x_seed, budget), game.getStrategy()};
+        int[] indices = {x, o};
+        int last = -1;
+        MoveResult result = MoveResult.ONGOING;
+        for (int turn = 0; !result.isFinished(); turn ^= 1) {
+            Strategy side = sides[turn];
+            long start = System.nanoTime();
+            int cell = side.play(last < 0 ? -1 : last / size, last < 0 ? -1 : last % size);
+            stats.addMove(indices[turn], System.nanoTime() - start, side.getNodes());
+            result = cell < 0 ? MoveResult.ILLEGAL
+                    : game.move(turn == 0 ? Board.X : Board.O, cell / size, cell % size);
+            if (result == MoveResult.ILLEGAL)
+                throw new RuntimeException(side.getName() + " chose the illegal move " + cell + "!");
+            last = cell;
+        }
+        stats.addGame(x, o, result);
+    }
+
+    // All pairs of players, the lower index first
+    private int[][] pairList() {
+        int[][] result = new int[pairs][];
+        int k = 0;
+        for (int i = 0; i < players.length; i++) {
+            for (int j = i + 1; j < players.length; j++) {
+                result[k++] = new int[]{i, j};
+            }
+        }
+        return result;
+    }
+
+    // A participant: a Computer mode with its caps
+    public static final class Player {
+
+        private final String name;
+        private final Computer.Mode mode;
+        private final int depth_limit;
+        private final long playouts;
+        private final int parallelism;
+
+        public Player(String name, Computer.Mode mode, int depth_limit, long playouts, int parallelism) {
+            this.name = name;
+            this.mode = mode;
+            this.depth_limit = depth_limit;
+            this.playouts = playouts;
+            this.parallelism = parallelism;
+        }
+
+        // Parse a player given as mode[:depth=N][:playouts=N][:parallelism=N], e.g. "mcts:playouts=1000"
+        public static Player parse(String spec) {
+            String[] parts = spec.split(":");
+            Computer.Mode mode = Computer.Mode.valueOf(parts[0].toUpperCase());
+            int depth_limit = Integer.MAX_VALUE;
+            long playouts = Long.MAX_VALUE;
+            int parallelism = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String[] option = parts[i].split("=");
+                if (option.length != 2)
+                    throw new RuntimeException("Invalid player " + spec);
+                switch (option[0]) {
+                    case "depth" -> depth_limit = Integer.parseInt(option[1]);
+                    case "playouts" -> playouts = Long.parseLong(option[1].replace("_", ""));
+                    case "parallelism" -> parallelism = Integer.parseInt(option[1]);
+                    default -> throw new RuntimeException("Unknown option " + option[0] + " of player " + spec);
+                }
+            }
+            return new Player(spec, mode, depth_limit, playouts, parallelism);
+        }
+
+        // Getter method
+        public String getName() {
+            return name;
+        }
+
+        // The computer of this player for one side of a game
+        Computer create(TicTacToe game, int player, long seed, long budget) {
+            Computer computer = new Computer(game, mode, player);
+            computer.setSeed(seed);
+            computer.setTimeBudget(budget, TimeUnit.MILLISECONDS);
+            computer.setDepthLimit(depth_limit);
+            computer.setPlayoutBudget(playouts);
+            if (parallelism > 1)
+                computer.setParallelism(parallelism);
+            return computer;
+        }
+    }
+
+    // Results of a number of games between the players, and the effort they took
+    public static final class Stats {
+
+        private final int count;
+        private final long[][] wins;            // wins[i][j]: games player i won against player j
+        private final long[][] draws;           // Symmetric
+        private final long[] moves;             // Per player
+        private final long[] think_nanos;
+        private final long[] nodes;
+
+        public Stats(int count) {
+            this.count = count;
+            wins = new long[count][count];
+            draws = new long[count][count];
+            moves = new long[count];
+            think_nanos = new long[count];
+            nodes = new long[count];
+        }
+
+        public void addMove(int player, long nanos, long searched) {
+            moves[player]++;
+            think_nanos[player] += nanos;
+            nodes[player] += searched;
+        }
+
+        public void addGame(int x, int o, MoveResult result) {
+            switch (result) {
+                case X_WON -> wins[x][o]++;
+                case O_WON -> wins[o][x]++;
+                default -> {
+                    draws[x][o]++;
+                    draws[o][x]++;
+                }
+            }
+        }
+
+        public synchronized void merge(Stats other) {
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < count; j++) {
+                    wins[i][j] += other.wins[i][j];
+                    draws[i][j] += other.draws[i][j];
+                }
+                moves[i] += other.moves[i];
+                think_nanos[i] += other.think_nanos[i];
+                nodes[i] += other.nodes[i];
+            }
+        }
+
+        public void clear() {
+            for (int i = 0; i < count; i++) {
+                Arrays.fill(wins[i], 0);
+                Arrays.fill(draws[i], 0);
+            }
+            Arrays.fill(moves, 0);
+            Arrays.fill(think_nanos, 0);
+            Arrays.fill(nodes, 0);
+        }
+
+        // Wins, draws and losses of the given player against everyone
+        public synchronized long[] record(int player) {
+            long[] result = new long[3];
+            for (int j = 0; j < count; j++) {
+                result[0] += wins[player][j];
+                result[1] += draws[player][j];
+                result[2] += wins[j][player];
+            }
+            return result;
+        }
+
+        // The Elo ratings of the players and the half widths of their 95% confidence intervals, see Tournament.
+        // Fitted by Newton steps on one rating at a time
+        public synchronized double[][] ratings() {
+            double[] rating = new double[count];
+            for (int iteration = 0; iteration < FIT_ITERATIONS; iteration++) {
+                for (int i = 0; i < count; i++) {
+                    double score = 0;
+                    double expected = 0;
+                    double information = 0;
+                    for (int j = 0; j < count; j++) {
+                        if (j == i)
+                            continue;
+                        double games = wins[i][j] + wins[j][i] + draws[i][j] + 1;  // One extra draw
+                        double p = expected(rating[i], rating[j]);
+                        score += wins[i][j] + 0.5 * draws[i][j] + 0.5;
+                        expected += games * p;
+                        information += games * p * (1 - p);
+                    }
+                    rating[i] += ELO_SCALE * (score - expected) / information;
+                }
+            }
+
+            double[][] result = new double[2][count];
+            double mean = Arrays.stream(rating).average().orElse(0);
+            for (int i = 0; i < count; i++) {
+                double information = 0;
+                for (int j = 0; j < count; j++) {
+                    if (j == i)
+                        continue;
+                    double p = expected(rating[i], rating[j]);
+                    information += (wins[i][j] + wins[j][i] + draws[i][j] + 1) * p * (1 - p);
+                }
+                result[0][i] = 1500 + rating[i] - mean;
+                result[1][i] = 1.96 * ELO_SCALE / Math.sqrt(information);
+            }
+            return result;
+        }
+
+        // Expected score of a player rated a against one rated b
+        private static double expected(double a, double b) {
+            return 1 / (1 + Math.pow(10, (b - a) / 400));
+        }
+    }
+}
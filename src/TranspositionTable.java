@@ -0,0 +1,87 @@
+import java.util.Arrays;
+
+// A fixed-size transposition table for the alpha-beta search, indexed by the Zobrist hash of a position.
+// Every slot holds one entry packed into a long: score, best move, search depth, bound type and the age of the
+// search that stored it. The table never grows. When two positions collide on a slot, the new entry replaces
+// the old one if it comes from a newer search, was searched at least as deep, or is for the same position.
+// The table can be shared by several search threads without locking: the key is stored XOR-ed with the entry,
+// so if a reader sees the halves of two different writes, the key check fails and the slot counts as a miss.
+public final class TranspositionTable {
+
+    // Bound types
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;      // The real score is at least the stored one (fail high)
+    public static final int UPPER = 2;      // The real score is at most the stored one (fail low)
+
+    private static final long VALID = 1L << 58;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private int age;
+
+    // Constructor, the table has 2^bits slots of 16 bytes each
+    public TranspositionTable(int bits) {
+        keys = new long[1 << bits];
+        data = new long[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    // Mark the start of a new search, so entries of older searches get replaced first
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    // Remove all entries
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    // Return the packed entry for the given position, or 0 if there is none
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    public void store(long key, int depth, int flag, int score, int move) {
+        int index = (int) key & mask;
+        long old = data[index];
+        if (old != 0 && (keys[index] ^ old) != key && ageOf(old) == age && depthOf(old) > depth)
+            return;
+
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) (move & 0xFF) << 32
+                | (long) (depth & 0xFF) << 40
+                | (long) flag << 48
+                | (long) age << 50
+                | VALID;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    // Helper functions to unpack an entry:
+
+    public static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    // The best move, or -1 if none was stored
+    public static int moveOf(long entry) {
+        int move = (int) (entry >>> 32) & 0xFF;
+        return move == 0xFF ? -1 : move;
+    }
+
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 40) & 0xFF;
+    }
+
+    public static int flagOf(long entry) {
+        return (int) (entry >>> 48) & 0x3;
+    }
+
+    private static int ageOf(long entry) {
+        return (int) (entry >>> 50) & 0xFF;
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+// Precomputed win detection for one board size.
+// For every cell the four lines going through it (horizontal, vertical, diagonal and anti diagonal) are built
+// once as arrays of cell indices. Checking a move then only gathers the bits of those lines from the bitboards
+// and runs a few shift-and-mask operations, without allocating anything.
+public final class WinChecker {
+
+    private static final int MAX_SIZE = BitBoard.MAX_SIZE;
+    private static final WinChecker[] checkers = new WinChecker[MAX_SIZE + 1];
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    private static final int WINDOW = Neighborhood.RADIUS;  // Cells on either side of a mark a win can reach
+
+    private final int size;
+    private final int[][] lines;            // All lines of the board with at least 3 cells, as cell indices
+    private final int[][] cell_lines;       // Indices into lines for every cell
+    private final int[][] cell_positions;   // Position of the cell in each of its lines, parallel to cell_lines
+
+    private WinChecker(int size) {
+        this.size = size;
+
+        int[][] all = new int[4 * size * size][];
+        int count = 0;
+        int[][] through = new int[size * size][4];
+        int[][] positions = new int[size * size][4];
+        for (int[] row : through) {
+            Arrays.fill(row, -1);
+        }
+
+        // Each line is walked from its first cell. (dr, dc) is the direction of the line
+        for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+            int dr = DIRECTIONS[dir][0];
+            int dc = DIRECTIONS[dir][1];
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    // Only start at cells whose predecessor in this direction is outside the board
+                    if (isInBound(row - dr, col - dc))
+                        continue;
+                    int length = 0;
+                    while (isInBound(row + length * dr, col + length * dc)) {
+                        length++;
+                    }
+                    if (length < 3)         // Too short to contain any winning pattern
+                        continue;
+                    int[] line = new int[length];
+                    for (int k = 0; k < length; k++) {
+                        line[k] = (row + k * dr) * size + col + k * dc;
+                        through[line[k]][dir] = count;
+                        positions[line[k]][dir] = k;
+                    }
+                    all[count++] = line;
+                }
+            }
+        }
+
+        lines = Arrays.copyOf(all, count);
+        cell_lines = new int[size * size][];
+        cell_positions = new int[size * size][];
+        // Plain loops rather than streams, this runs when the first game starts and streams take long to load
+        for (int cell = 0; cell < size * size; cell++) {
+            int n = 0;
+            int[] ids = new int[4];
+            int[] where = new int[4];
+            for (int dir = 0; dir < 4; dir++) {
+                if (through[cell][dir] >= 0) {
+                    ids[n] = through[cell][dir];
+                    where[n++] = positions[cell][dir];
+                }
+            }
+            cell_lines[cell] = Arrays.copyOf(ids, n);
+            cell_positions[cell] = Arrays.copyOf(where, n);
+        }
+    }
+
+    // Return the shared checker for the given board size, building it on first use
+    public static synchronized WinChecker forSize(int size) {
+        if (checkers[size] == null)
+            checkers[size] = new WinChecker(size);
+        return checkers[size];
+    }
+
+    // Getter method
+    public int getSize() {
+        return size;
+    }
+
+    // Number of lines of the board with at least 3 cells
+    public int getLineCount() {
+        return lines.length;
+    }
+
+    // Cells of the line with the given index, in order. The array is shared and must not be changed
+    public int[] getLine(int index) {
+        return lines[index];
+    }
+
+    // Indices of the lines going through the given cell. The array is shared and must not be changed
+    public int[] getLinesThrough(int cell) {
+        return cell_lines[cell];
+    }
+
+    // Position of the cell in each of the lines of getLinesThrough(cell). The array is shared and must not be
+    // changed
+    public int[] getPositions(int cell) {
+        return cell_positions[cell];
+    }
+
+    // Check whether the player owning the bitboard own wins on any line going through the given cell,
+    // opp being the bitboard of the other player
+    public boolean isWinning(long own, long opp, int cell) {
+        for (int index : cell_lines[cell]) {
+            int[] line = lines[index];
+            long own_line = 0;
+            long opp_line = 0;
+            for (int k = 0; k < line.length; k++) {
+                own_line |= ((own >>> line[k]) & 1) << k;
+                opp_line |= ((opp >>> line[k]) & 1) << k;
+            }
+            if (checkLine(own_line, opp_line))
+                return true;
+        }
+        return false;
+    }
+
+    // Check whether the owner of own wins on a single line. Bit k of own and opp is the k-th cell of the line.
+    // Logic: When the board is larger than 3x3, if your marks are blocked by the opposite mark, you have to
+    // have 4 marks instead. So the only possible winning solutions are XXXXO, OXXXX, OOOOX, XOOOO, XXX, OOO.
+    // Knowing this we can check from the biggest set to smallest set to see if any of those solutions exist.
+    // Every pattern is found with shifts: bit k of three is set if cells k, k+1 and k+2 are all own marks.
+    public static boolean checkLine(long own, long opp) {
+        long three = own & (own >>> 1) & (own >>> 2);
+        if (three == 0)
+            return false;
+        long four = three & (own >>> 3);
+
+        // Case XXXXO or OXXXX
+        if ((four & (opp >>> 4)) != 0 || (opp & (four >>> 1)) != 0)
+            return true;
+        // Case OXXXO / OXXX_ / _XXXO, then X cannot win
+        if ((opp & (three >>> 1)) != 0 || (three & (opp >>> 3)) != 0)
+            return false;
+        // Case XXX, with them not being blocked by any O
+        return true;
+    }
+
+    // Check whether the player wins on a line through the given cell as if the cell were marked by the player, applying
+    // checkLine to the 4 cells on either side of it in each direction, looked up in the Neighborhood of the board size.
+    // Every winning pattern through the cell lies within that window, so this works on a Board of any size and its cost
+    // doesn't depend on the size. Used for boards too large for bitboards; unlike isWinning, a blocked three further
+    // away on the same line doesn't keep the player from winning there
+    public static boolean isWinningAround(Board board, int player, int cell) {
+        Neighborhood neighborhood = Neighborhood.forSize(board.getSize());
+        for (int direction = 0; direction < Neighborhood.DIRECTIONS; direction++) {
+            if (isWinningAlong(board, neighborhood, player, cell, direction))
+                return true;
+        }
+        return false;
+    }
+
+    // Same as above, for the line through the cell in the given direction of the Neighborhood only
+    public static boolean isWinningAlong(Board board, Neighborhood neighborhood, int player, int cell, int direction) {
+        int opponent = Board.opponent(player);
+        long own = 1L << WINDOW;
+        long opp = 0;
+        for (int k = -WINDOW; k <= WINDOW; k++) {
+            int near = neighborhood.get(cell, direction, k);
+            if (k == 0 || near < 0)
+                continue;
+            int mark = board.get(near);
+            if (mark == player)
+                own |= 1L << (k + WINDOW);
+            else if (mark == opponent)
+                opp |= 1L << (k + WINDOW);
+        }
+        return checkLine(own, opp);
+    }
+
+    // Check if the given coordinate is valid
+    private boolean isInBound(int row, int col) {
+        return 0 <= row && row < size && 0 <= col && col < size;
+    }
+}
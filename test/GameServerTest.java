@@ -0,0 +1,55 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Routing of the game server's requests, on a server of its own on a free port
+class GameServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SessionManager sessions;
+    private GameServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        sessions = new SessionManager(1, TimeUnit.MINUTES);
+        server = new GameServer(0, sessions, 1);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        sessions.close();
+    }
+
+    @Test
+    void createsGames() throws Exception {
+        assertEquals(200, send("POST", "/games?size=3"));
+    }
+
+    @Test
+    void rejectsPathsThatOnlyStartWithGames() throws Exception {
+        assertEquals(404, send("POST", "/gamesXYZ"));
+        assertEquals(404, send("POST", "/gamesXYZ/1/moves?row=0&col=0"));
+        assertEquals(404, send("GET", "/gamesXYZ/1"));
+    }
+
+    // Helper functions:
+
+    // Send a request without a body and return the status of the response
+    private int send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The decisive moves MonteCarloSearch plays before searching, with no playouts allowed so that the search
+// itself cannot find them
+class MonteCarloSearchTest {
+
+    private static final int SEEDS = 50;
+
+    @Test
+    void takesImmediateWinOn3x3() {
+        // X threatens 2, O wins on 5: the win comes before the block
+        for (int seed = 0; seed < SEEDS; seed++) {
+            assertEquals(5, bestMove(3, seed, new int[]{0, 1, 8}, new int[]{3, 4}));
+        }
+    }
+
+    @Test
+    void blocksImmediateLossOn3x3() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            assertEquals(2, bestMove(3, seed, new int[]{0, 1, 7}, new int[]{4, 8}));
+        }
+    }
+
+    @Test
+    void takesImmediateWinOn7x7() {
+        // X threatens to complete (1, 2) (1, 3), O wins by completing (4, 2) (4, 3) on either side
+        for (int seed = 0; seed < SEEDS; seed++) {
+            int move = bestMove(7, seed, new int[]{9, 10, 0}, new int[]{30, 31});
+            assertTrue(move == 29 || move == 32, "move " + move);
+        }
+    }
+
+    @Test
+    void blocksImmediateLossOn7x7() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            int move = bestMove(7, seed, new int[]{9, 10, 48}, new int[]{0, 6});
+            assertTrue(move == 8 || move == 11, "move " + move);
+        }
+    }
+
+    // Helper functions:
+
+    // The move of O, X having marked xs and O having marked os, alternating from X
+    private static int bestMove(int size, long seed, int[] xs, int[] os) {
+        Board board = Board.create(size);
+        MoveJournal journal = new MoveJournal();
+        for (int i = 0; i < xs.length; i++) {
+            board.set(xs[i], Board.X);
+            journal.append(Board.X, xs[i]);
+            if (i < os.length) {
+                board.set(os[i], Board.O);
+                journal.append(Board.O, os[i]);
+            }
+        }
+        MonteCarloSearch search = new MonteCarloSearch(size);
+        search.setSeed(seed);
+        search.setMaxPlayouts(0);
+        return search.bestMove(board, journal, Board.O, 0);
+    }
+}